@@ -1,6 +1,7 @@
 
 package typesafeschwalbe.gerac.cli;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -50,13 +51,13 @@ public class Cli {
 
     public static class Values {
         
-        private final Map<RequiredArgument, String> required;
+        private final Map<RequiredArgument, List<String>> required;
         private final Map<OptionalArgument, Optional<String>> optional;
         private final Map<Flag, Boolean> flags;
         private final List<String> free;
 
         private Values(
-            Map<RequiredArgument, String> required,
+            Map<RequiredArgument, List<String>> required,
             Map<OptionalArgument, Optional<String>> optional,
             Map<Flag, Boolean> flags,
             List<String> free
@@ -68,6 +69,12 @@ public class Cli {
         }
 
         public String get(RequiredArgument arg) {
+            List<String> values = this.getAll(arg);
+            return values.get(values.size() - 1);
+        }
+
+        // required arguments may be given multiple times
+        public List<String> getAll(RequiredArgument arg) {
             if(!this.required.containsKey(arg)) {
                 throw new IllegalArgumentException(
                     "The given argument was not registered!"
@@ -196,22 +203,49 @@ public class Cli {
         return null;
     }
 
-    private static void printArgumentHelp(Argument arg) {
-        System.out.println(
+    private static void printArgumentHelp(Argument arg, PrintStream out) {
+        out.println(
             "    -" + arg.shortName()
                 + (arg.hasValue()? " <" + arg.valueDescription() + ">" : "")
         );
-        System.out.println(
+        out.println(
             "    --" + arg.longName()
                 + (arg.hasValue()? " <" + arg.valueDescription() + ">" : "")
         );
-        System.out.println(
+        out.println(
             "                " + arg.description()
         );
     }
 
-    public Result<Values> parse(String[] args) {
-        Map<RequiredArgument, String> required = new HashMap<>();
+    private void printHelp(PrintStream out) {
+        out.println("List of available arguments:");
+        out.println("Required:");
+        for(RequiredArgument carg: this.required) {
+            Cli.printArgumentHelp(carg, out);
+        }
+        out.println("Optional:");
+        for(OptionalArgument carg: this.optional) {
+            Cli.printArgumentHelp(carg, out);
+        }
+        for(Flag carg: this.flags) {
+            Cli.printArgumentHelp(carg, out);
+        }
+        out.flush();
+    }
+
+    // If help is requested it is written to 'helpOut' and the result is
+    // an empty list of errors.
+    public Result<Values> parse(String[] args, PrintStream helpOut) {
+        return this.parse(args, helpOut, true);
+    }
+
+    // Missing required arguments may be allowed, which is useful for
+    // looking at flags that change which arguments are needed at all.
+    // In that case they don't have any values.
+    public Result<Values> parse(
+        String[] args, PrintStream helpOut, boolean requireAll
+    ) {
+        Map<RequiredArgument, List<String>> required = new HashMap<>();
         Map<OptionalArgument, Optional<String>> optional = new HashMap<>();
         Map<Flag, Boolean> flags = new HashMap<>();
         List<String> free = new ArrayList<>();
@@ -240,25 +274,18 @@ public class Cli {
                 String value = args[argIdx + 1];
                 argIdx += 1;
                 if(argObj.isRequired()) {
-                    required.put((RequiredArgument) argObj, value);
+                    required
+                        .computeIfAbsent(
+                            (RequiredArgument) argObj, a -> new ArrayList<>()
+                        )
+                        .add(value);
                 } else {
                     optional.put((OptionalArgument) argObj, Optional.of(value));
                 }
             } else {
                 if(argObj.longName().equals("help")) {
-                    System.out.println("List of available arguments:");
-                    System.out.println("Required:");
-                    for(RequiredArgument carg: this.required) {
-                        Cli.printArgumentHelp(carg);
-                    }
-                    System.out.println("Optional:");
-                    for(OptionalArgument carg: this.optional) {
-                        Cli.printArgumentHelp(carg);
-                    }
-                    for(Flag carg: this.flags) {
-                        Cli.printArgumentHelp(carg);
-                    }
-                    System.exit(1);
+                    this.printHelp(helpOut);
+                    return Result.ofError(List.of());
                 }
                 flags.put((Flag) argObj, true);
             }
@@ -267,6 +294,10 @@ public class Cli {
             if(required.containsKey(arg)) {
                 continue;
             }
+            if(!requireAll) {
+                required.put(arg, List.of());
+                continue;
+            }
             return Cli.missingArgument(arg);
         }
         for(OptionalArgument arg: this.optional) {
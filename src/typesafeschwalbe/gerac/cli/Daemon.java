@@ -0,0 +1,64 @@
+
+package typesafeschwalbe.gerac.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import typesafeschwalbe.gerac.compiler.frontend.ParseCache;
+
+// Each request consists of the usual CLI arguments, one per line,
+// and is terminated by an empty line. After the request has been handled
+// 'exit <code>' is written to the output stream, which is not used for
+// anything else.
+public class Daemon {
+
+    private final ParseCache parseCache;
+
+    public Daemon() {
+        this.parseCache = new ParseCache();
+    }
+
+    public void run(InputStream in, PrintStream out, PrintStream err) {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(in, StandardCharsets.UTF_8)
+        );
+        List<String> args = new ArrayList<>();
+        while(true) {
+            String line;
+            try {
+                line = reader.readLine();
+            } catch(IOException e) {
+                break;
+            }
+            if(line == null) { break; }
+            if(line.length() > 0) {
+                args.add(line);
+                continue;
+            }
+            if(args.size() == 0) { continue; }
+            int exitCode;
+            try {
+                // help is written to the error stream so that the output
+                // stream only contains responses
+                exitCode = Main.run(
+                    args.toArray(String[]::new), this.parseCache, err
+                );
+            } catch(RuntimeException e) {
+                // a failing request shouldn't take the following ones down
+                e.printStackTrace(err);
+                err.flush();
+                exitCode = 1;
+            }
+            args.clear();
+            out.println("exit " + exitCode);
+            out.flush();
+        }
+    }
+
+}
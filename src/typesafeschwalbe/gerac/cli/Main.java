@@ -1,23 +1,43 @@
 
 package typesafeschwalbe.gerac.cli;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
+import typesafeschwalbe.gerac.compiler.BuiltIns;
 import typesafeschwalbe.gerac.compiler.Compiler;
 import typesafeschwalbe.gerac.compiler.Error;
+import typesafeschwalbe.gerac.compiler.Fingerprint;
+import typesafeschwalbe.gerac.compiler.MemoryReport;
 import typesafeschwalbe.gerac.compiler.Result;
 import typesafeschwalbe.gerac.compiler.Target;
+import typesafeschwalbe.gerac.compiler.Timings;
+import typesafeschwalbe.gerac.compiler.Trace;
 import typesafeschwalbe.gerac.compiler.frontend.Lexer;
+import typesafeschwalbe.gerac.compiler.frontend.ModuleIndex;
+import typesafeschwalbe.gerac.compiler.frontend.ParseCache;
 
 public class Main {
 
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
     private static final Cli.RequiredArgument MAIN = new Cli.RequiredArgument(
         'm', "main",
         "specifies the path of the main procedure",
@@ -33,7 +53,10 @@ public class Main {
         )
     );
     private static final Cli.RequiredArgument OUTPUT = new Cli.RequiredArgument(
-        'o', "output", "specifies the output file path",
+        'o', "output",
+        "specifies the output file path"
+            + " (may be repeated together with the main path and target"
+            + " to compile multiple programs at once)",
         "output file path"
     );
     private static final Cli.OptionalArgument SYMBOLS = new Cli.OptionalArgument(
@@ -41,134 +64,475 @@ public class Main {
         "specifies the output file path for the symbol info file",
         "output file path"
     );
+    private static final Cli.OptionalArgument CACHE_DIR = new Cli.OptionalArgument(
+        'p', "cache-dir",
+        "specifies a directory for caching parsed source files",
+        "directory path"
+    );
+    private static final Cli.OptionalArgument DEPFILE = new Cli.OptionalArgument(
+        'f', "depfile",
+        "specifies the output file path for a make-style dependency file"
+            + " listing the files that declare reachable symbols",
+        "output file path"
+    );
+    private static final Cli.Flag PRUNE = new Cli.Flag(
+        'u', "prune",
+        "skips parsing files that only declare modules unreachable"
+            + " from the main procedure (ignored when checking all symbols)"
+    );
+    private static final Cli.Flag CHECK_ALL = new Cli.Flag(
+        'a', "checkall",
+        "type checks all symbols, even ones unreachable from the main procedure"
+    );
+    private static final Cli.Flag TIMINGS = new Cli.Flag(
+        'i', "timings",
+        "reports the time and memory spent in each compilation phase"
+    );
+    private static final Cli.OptionalArgument TIMINGS_JSON = new Cli.OptionalArgument(
+        'j', "timings-json",
+        "specifies the output file path for a JSON timing report",
+        "output file path"
+    );
+    private static final Cli.OptionalArgument TRACE = new Cli.OptionalArgument(
+        'r', "trace",
+        "specifies the output file path for a trace of the compiler's work"
+            + " (Chrome trace event format)",
+        "output file path"
+    );
+    private static final Cli.Flag MEM_REPORT = new Cli.Flag(
+        'e', "mem-report",
+        "reports the estimated memory used by the compiler after each phase"
+    );
     private static final Cli.Flag NO_COLOR = new Cli.Flag(
         'c', "nocolor", "disables colored output"
     );
 
+    private static final Cli.Flag DAEMON = new Cli.Flag(
+        'd', "daemon",
+        "keeps running and reads compilation requests from standard input"
+    );
+    private static final Cli.Flag WATCH = new Cli.Flag(
+        'w', "watch",
+        "keeps running and compiles again every time an input file changes"
+    );
+
     public static void main(String[] args) {
-        // color is always disabled if we think we are on Windows
-        boolean onWindows = System.getProperty("os.name")
-            .toLowerCase().contains("win");
+        // the daemon gets the arguments of each compilation with its request
+        Result<Cli.Values> cliParseResult = Main.cli()
+            .parse(args, System.out, false);
+        if(cliParseResult.isError()) {
+            System.exit(Main.reportErrors(
+                cliParseResult.getError(), new HashMap<>(), !Main.onWindows(),
+                System.err
+            ));
+        }
+        Cli.Values cliValues = cliParseResult.getValue();
+        if(cliValues.get(DAEMON)) {
+            new Daemon().run(System.in, System.out, System.err);
+            return;
+        }
+        if(cliValues.get(WATCH)) {
+            boolean colored = !cliValues.get(NO_COLOR) && !Main.onWindows();
+            System.exit(new Watcher().run(
+                args, cliValues.free(), colored, System.err
+            ));
+        }
+        System.exit(Main.run(args, new ParseCache(), System.err));
+    }
+
+    // color is always disabled if we think we are on Windows
+    private static boolean onWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("win");
+    }
+
+    private static Cli cli() {
+        return new Cli()
+            .add(MAIN).add(TARGET).add(OUTPUT).add(SYMBOLS).add(CACHE_DIR)
+            .add(DEPFILE).add(PRUNE).add(CHECK_ALL).add(TIMINGS)
+            .add(TIMINGS_JSON).add(TRACE).add(MEM_REPORT).add(NO_COLOR)
+            .add(DAEMON).add(WATCH);
+    }
+
+    static int run(String[] args, ParseCache parseCache, PrintStream err) {
+        return Main.run(args, parseCache, Optional.empty(), err);
+    }
+
+    // 'fingerprints' holds the fingerprint of the last successful
+    // compilation for each output file - compilations that would result
+    // in the same output are skipped and update the map otherwise.
+    static int run(
+        String[] args, ParseCache parseCache,
+        Optional<Map<String, Fingerprint>> fingerprints, PrintStream err
+    ) {
+        boolean onWindows = Main.onWindows();
         // parse CLI arguments
-        Cli cli = new Cli()
-            .add(MAIN).add(TARGET).add(OUTPUT).add(SYMBOLS)
-            .add(NO_COLOR);
-        Result<Cli.Values> cliParseResult = cli.parse(args);
+        Result<Cli.Values> cliParseResult = Main.cli().parse(args, err);
         if(cliParseResult.isError()) {
-            Main.exitWithErrors(
-                cliParseResult.getError(), new HashMap<>(), !onWindows
+            return Main.reportErrors(
+                cliParseResult.getError(), new HashMap<>(), !onWindows, err
             );
         }
         Cli.Values cliValues = cliParseResult.getValue();
         boolean colored = !cliValues.get(NO_COLOR) && !onWindows;
         // read all files
+        Result<List<SourceLoader.SourceFile>> loaded = SourceLoader.load(
+            cliValues.free()
+        );
+        if(loaded.isError()) {
+            return Main.reportErrors(
+                loaded.getError(), new HashMap<>(), colored, err
+            );
+        }
         Map<String, String> files = new HashMap<>();
-        for(String fileName: cliValues.free()) {
-            byte[] fileBytes;
-            try {
-                fileBytes = Files.readAllBytes(Paths.get(fileName));
-            } catch(IOException e) {
-                Main.exitWithErrors(
+        for(SourceLoader.SourceFile file: loaded.getValue()) {
+            files.put(file.name(), file.content());
+            parseCache.addContentHash(
+                file.name(), file.content(), file.contentHash()
+            );
+        }
+        // each compilation is described by a main path, target and output
+        // file - main paths and targets may also be given once for all
+        List<String> outputs = cliValues.getAll(OUTPUT);
+        List<String> mains = cliValues.getAll(MAIN);
+        List<String> strTargets = cliValues.getAll(TARGET);
+        int compilationC = outputs.size();
+        if((mains.size() != 1 && mains.size() != compilationC)
+            || (strTargets.size() != 1 && strTargets.size() != compilationC)) {
+            return Main.reportErrors(
+                List.of(new Error(
+                    "The number of main procedures and targets must either"
+                        + " be 1 or match the number of output files"
+                )),
+                files,
+                colored, err
+            );
+        }
+        boolean timed = cliValues.get(TIMINGS)
+            || cliValues.get(TIMINGS_JSON).isPresent();
+        boolean memoryReported = cliValues.get(MEM_REPORT);
+        List<Compilation> compilations = new ArrayList<>();
+        for(int compI = 0; compI < compilationC; compI += 1) {
+            String main = mains.get(mains.size() == 1? 0 : compI);
+            String strTarget = strTargets
+                .get(strTargets.size() == 1? 0 : compI);
+            // make sure main path is remotely valid
+            if(!Main.isValidMainPath(main)) {
+                return Main.reportErrors(
                     List.of(new Error(
-                        "Unable to read file '" + fileName + "': "
-                            + "'" + e.getMessage() + "'"
+                        "'" + main + "' is not a valid main path"
                     )),
                     files,
-                    colored
+                    colored, err
                 );
-                return;
             }
-            String fileContent = new String(fileBytes, StandardCharsets.UTF_8);
-            files.put(fileName, fileContent);
-        }
-        // make sure main path is remotely valid
-        String main = cliValues.get(MAIN);
-        for(String segment: main.split("::")) {
-            for(int charIdx = 0; charIdx < segment.length(); charIdx += 1) {
-                if(Lexer.isAlphanumeral(segment.charAt(charIdx))) {
-                    continue;
-                }
-                Main.exitWithErrors(
+            // get the given target as an enum instance and ensure it's valid
+            Optional<Target> target = Arrays.stream(Target.values())
+                .filter(t -> t.targetName.equals(strTarget))
+                .findFirst();
+            if(target.isEmpty()) {
+                return Main.reportErrors(
                     List.of(new Error(
-                        "'" + main + "' is not a valid main path"
+                        "'" + strTarget + "' is not a valid target language"
                     )),
                     files,
-                    colored
+                    colored, err
                 );
             }
+            compilations.add(new Compilation(
+                main, target.get(), outputs.get(compI),
+                // symbol info is only generated by the first compilation
+                compI == 0? cliValues.get(SYMBOLS) : Optional.empty(),
+                // compilations run at the same time, which is why each one
+                // is measured separately
+                timed? new Timings() : Timings.disabled(),
+                memoryReported? new MemoryReport() : MemoryReport.disabled()
+            ));
+        }
+        // use the cache directory if one was given
+        ParseCache cache = parseCache.withDirectory(
+            cliValues.get(CACHE_DIR).map(dir -> Paths.get(dir))
+        );
+        // compile
+        Timings parseAheadTimings = timed? new Timings() : Timings.disabled();
+        Trace trace = cliValues.get(TRACE).isPresent()
+            ? new Trace()
+            : Trace.disabled();
+        boolean checkAll = cliValues.get(CHECK_ALL);
+        // the module index is only used by compilations that don't need
+        // to know about every symbol
+        Optional<ModuleIndex> moduleIndex = cliValues.get(PRUNE) && !checkAll
+            ? Optional.of(new ModuleIndex(files))
+            : Optional.empty();
+        boolean parsedAhead = compilationC > 1 && moduleIndex.isEmpty();
+        if(parsedAhead) {
+            // files only need to be parsed once for each target,
+            // all following compilations get them from the cache
+            Compiler.parseAhead(
+                files,
+                compilations.stream().map(c -> c.target).distinct().toList(),
+                cache, parseAheadTimings, trace
+            );
+        }
+        List<Result<List<String>>> results = compilations.parallelStream()
+            .map(c -> Main.compile(
+                c, Main.compiledFiles(c, files, moduleIndex), checkAll,
+                cache, fingerprints, trace
+            ))
+            .toList();
+        boolean failed = false;
+        Map<String, String> allFiles = BuiltIns.withFiles(files);
+        for(Result<List<String>> result: results) {
+            if(!result.isError()) { continue; }
+            Main.reportErrors(result.getError(), allFiles, colored, err);
+            failed = true;
+        }
+        List<Error> reportErrors = new ArrayList<>();
+        if(!failed && cliValues.get(DEPFILE).isPresent()) {
+            Main.writeDepfile(
+                cliValues.get(DEPFILE).get(), compilations, results
+            ).ifPresent(reportErrors::add);
+        }
+        Main.reportTimings(
+            cliValues, compilations, parsedAhead? parseAheadTimings : null, err
+        ).ifPresent(reportErrors::add);
+        if(memoryReported) {
+            err.print(compilationC == 1
+                ? compilations.get(0).memoryReport.render()
+                : MemoryReport.render(Main.labeled(
+                    compilations, c -> c.memoryReport
+                ))
+            );
+            err.flush();
+        }
+        Main.writeTrace(cliValues, trace).ifPresent(reportErrors::add);
+        if(reportErrors.size() > 0) {
+            Main.reportErrors(reportErrors, allFiles, colored, err);
+            failed = true;
+        }
+        return failed? 1 : 0;
+    }
+
+    private static record Compilation(
+        String main, Target target, String output, Optional<String> symbols,
+        Timings timings, MemoryReport memoryReport
+    ) {}
+
+    // Reports of multiple compilations are labeled with their output files.
+    private static <T> Map<String, T> labeled(
+        List<Compilation> compilations, Function<Compilation, T> report
+    ) {
+        Map<String, T> labeled = new LinkedHashMap<>();
+        for(Compilation compilation: compilations) {
+            labeled.put(compilation.output, report.apply(compilation));
+        }
+        return labeled;
+    }
+
+    private static Map<String, String> compiledFiles(
+        Compilation compilation, Map<String, String> files,
+        Optional<ModuleIndex> moduleIndex
+    ) {
+        // symbol info needs to include all symbols
+        if(moduleIndex.isEmpty() || compilation.symbols.isPresent()) {
+            return files;
         }
-        // get the given target as an enum instance and ensure it's valid
-        String strTarget = cliValues.get(TARGET);
-        Target target = Target.C;
-        boolean foundTarget = false;
-        for(Target possibleTarget: Target.values()) {
-            if(!possibleTarget.targetName.equals(strTarget)) {
+        List<String> mainPath = List.of(compilation.main.split("::"));
+        Set<String> reachable = moduleIndex.get().reachableFiles(
+            mainPath.subList(0, mainPath.size() - 1)
+        );
+        Map<String, String> compiledFiles = new HashMap<>();
+        for(String fileName: files.keySet()) {
+            if(fileName.endsWith(".gera") && !reachable.contains(fileName)) {
                 continue;
             }
-            target = possibleTarget;
-            foundTarget = true;
-            break;
+            compiledFiles.put(fileName, files.get(fileName));
         }
-        if(!foundTarget) {
-            Main.exitWithErrors(
-                List.of(new Error(
-                    "'" + strTarget + "' is not a valid target language"
-                )),
-                files,
-                colored
-            );
+        return compiledFiles;
+    }
+
+    // Returns the files the output depends on.
+    private static Result<List<String>> compile(
+        Compilation compilation, Map<String, String> files, boolean checkAll,
+        ParseCache parseCache, Optional<Map<String, Fingerprint>> fingerprints,
+        Trace trace
+    ) {
+        Optional<Fingerprint> previous = fingerprints
+            .map(f -> f.get(compilation.output));
+        // symbol info and checking all symbols depend on all symbols,
+        // not just the ones the output is made from
+        boolean skippable = previous.isPresent()
+            && compilation.symbols.isEmpty() && !checkAll
+            && Files.exists(Paths.get(compilation.output));
+        if(skippable && Compiler.isUnchanged(
+            files, compilation.target, compilation.main, parseCache,
+            previous.get()
+        )) {
+            return Result.ofValue(previous.get().dependencies());
         }
-        // compile
+        // only a successful compilation may be compared to later on
+        fingerprints.ifPresent(f -> f.remove(compilation.output));
         Result<Compiler.Output> compilationResult = Compiler.compile(
-            files, target, main, 
-            cliValues.get(SYMBOLS).isPresent()
+            files, compilation.target, compilation.main, 
+            compilation.symbols.isPresent(), checkAll,
+            parseCache, compilation.timings, trace, compilation.memoryReport
         );
         if(compilationResult.isError()) {
-            Main.exitWithErrors(
-                compilationResult.getError(), files, colored
-            );
+            return Result.ofError(compilationResult.getError());
         }
         // write symbols to file
         if(compilationResult.getValue().symbolInfo().isPresent()) {
-            Main.writeFile(
+            Optional<Error> writeError = Main.writeFile(
                 compilationResult.getValue().symbolInfo().get(), 
-                cliValues.get(SYMBOLS).get(), 
-                colored
+                compilation.symbols.get()
             );
+            if(writeError.isPresent()) {
+                return Result.ofError(writeError.get());
+            }
         }
-        // write output to file
-        Main.writeFile(
-            compilationResult.getValue().code(),
-            cliValues.get(OUTPUT), 
-            colored
+        // generate output directly into the file
+        Optional<Error> writeError = Main.writeOutput(
+            compilationResult.getValue(), compilation.output
         );
+        if(writeError.isPresent()) { return Result.ofError(writeError.get()); }
+        fingerprints.ifPresent(f -> f.put(
+            compilation.output, compilationResult.getValue().fingerprint().get()
+        ));
+        return Result.ofValue(compilationResult.getValue().dependencies());
     }
 
-    private static void writeFile(
-        String content, String path, boolean errorColored
+    private static Optional<Error> writeDepfile(
+        String path, List<Compilation> compilations,
+        List<Result<List<String>>> dependencies
     ) {
+        StringBuilder out = new StringBuilder();
+        for(int compI = 0; compI < compilations.size(); compI += 1) {
+            Compilation compilation = compilations.get(compI);
+            out.append(Main.escapeMakePath(compilation.output));
+            if(compilation.symbols.isPresent()) {
+                out.append(" ");
+                out.append(Main.escapeMakePath(compilation.symbols.get()));
+            }
+            out.append(":");
+            for(String dependency: dependencies.get(compI).getValue()) {
+                out.append(" \\\n  ");
+                out.append(Main.escapeMakePath(dependency));
+            }
+            out.append("\n");
+        }
+        return Main.writeFile(out.toString(), path);
+    }
+
+    private static String escapeMakePath(String path) {
+        return path
+            .replace(" ", "\\ ")
+            .replace("#", "\\#")
+            .replace("$", "$$");
+    }
+
+    private static boolean isValidMainPath(String main) {
+        for(String segment: main.split("::")) {
+            for(int charIdx = 0; charIdx < segment.length(); charIdx += 1) {
+                if(Lexer.isAlphanumeral(segment.charAt(charIdx))) {
+                    continue;
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Optional<Error> writeTrace(
+        Cli.Values cliValues, Trace trace
+    ) {
+        if(cliValues.get(TRACE).isEmpty()) { return Optional.empty(); }
+        String path = cliValues.get(TRACE).get();
+        try(Writer writer = Files.newBufferedWriter(
+            Paths.get(path), StandardCharsets.UTF_8
+        )) {
+            trace.write(writer);
+        } catch(IOException e) {
+            return Optional.of(Main.makeWriteError(path, e));
+        }
+        return Optional.empty();
+    }
+
+    // 'parseAheadTimings' is null if files weren't parsed ahead of the
+    // compilations.
+    private static Optional<Error> reportTimings(
+        Cli.Values cliValues, List<Compilation> compilations,
+        Timings parseAheadTimings, PrintStream err
+    ) {
+        Map<String, Timings> labeled = new LinkedHashMap<>();
+        if(parseAheadTimings != null) {
+            labeled.put("parsing ahead", parseAheadTimings);
+        }
+        labeled.putAll(Main.labeled(compilations, c -> c.timings));
+        boolean single = labeled.size() == 1;
+        if(cliValues.get(TIMINGS)) {
+            err.print(single
+                ? compilations.get(0).timings.render()
+                : Timings.render(labeled)
+            );
+            err.flush();
+        }
+        if(cliValues.get(TIMINGS_JSON).isPresent()) {
+            return Main.writeFile(
+                single
+                    ? compilations.get(0).timings.renderJson()
+                    : Timings.renderJson(labeled),
+                cliValues.get(TIMINGS_JSON).get()
+            );
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Error> writeOutput(
+        Compiler.Output output, String path
+    ) {
+        try(
+            FileChannel channel = FileChannel.open(
+                Paths.get(path),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+            );
+            Writer writer = new BufferedWriter(
+                Channels.newWriter(channel, StandardCharsets.UTF_8),
+                OUTPUT_BUFFER_SIZE
+            )
+        ) {
+            output.writeCode(writer);
+        } catch(IOException e) {
+            return Optional.of(Main.makeWriteError(path, e));
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Error> writeFile(String content, String path) {
         byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
         try {
             Files.write(Paths.get(path), contentBytes);
         } catch(IOException e) {
-            Main.exitWithErrors(
-                List.of(new Error(
-                    "Unable to write to file '" + path + "': "
-                        + "'" + e.getMessage() + "'"
-                )),
-                new HashMap<>(),
-                errorColored
-            );
+            return Optional.of(Main.makeWriteError(path, e));
         }
+        return Optional.empty();
+    }
+
+    private static Error makeWriteError(String path, IOException e) {
+        return new Error(
+            "Unable to write to file '" + path + "': "
+                + "'" + e.getMessage() + "'"
+        );
     }
 
-    private static void exitWithErrors(
-        List<Error> errors, Map<String, String> files, boolean colored
+    static int reportErrors(
+        List<Error> errors, Map<String, String> files, boolean colored,
+        PrintStream err
     ) {
         for(Error error: errors) {
-            System.err.print(error.render(files, colored));
+            err.print(error.render(files, colored));
         }
-        System.exit(1);
+        err.flush();
+        return 1;
     }
 
-}
\ No newline at end of file
+}
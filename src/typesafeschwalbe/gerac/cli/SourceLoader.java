@@ -0,0 +1,101 @@
+
+package typesafeschwalbe.gerac.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import typesafeschwalbe.gerac.compiler.Error;
+import typesafeschwalbe.gerac.compiler.Result;
+
+// Reads source files in parallel. Large files are memory-mapped instead of
+// being copied onto the heap before decoding. The SHA-256 hash of each file
+// is computed along the way so that it doesn't need to be recomputed
+// for caching.
+public class SourceLoader {
+
+    private static final long MAPPING_THRESHOLD = 1 << 20;
+
+    public static record SourceFile(
+        String name, String content, byte[] contentHash
+    ) {}
+
+    private SourceLoader() {}
+
+    public static Result<List<SourceFile>> load(List<String> fileNames) {
+        List<Result<SourceFile>> loaded = fileNames.parallelStream()
+            .map(SourceLoader::load)
+            .toList();
+        for(Result<SourceFile> file: loaded) {
+            if(file.isError()) { return Result.ofError(file.getError()); }
+        }
+        return Result.ofValue(loaded.stream().map(Result::getValue).toList());
+    }
+
+    private static Result<SourceFile> load(String fileName) {
+        ByteBuffer bytes;
+        try(FileChannel channel = FileChannel.open(
+            Paths.get(fileName), StandardOpenOption.READ
+        )) {
+            long size = channel.size();
+            if(size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large");
+            }
+            if(size >= MAPPING_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while(bytes.hasRemaining()) {
+                    if(channel.read(bytes) < 0) { break; }
+                }
+                bytes.flip();
+            }
+        } catch(IOException e) {
+            return Result.ofError(new Error(
+                "Unable to read file '" + fileName + "': "
+                    + "'" + e.getMessage() + "'"
+            ));
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        digest.update(bytes.duplicate());
+        byte[] contentHash = digest.digest();
+        return Result.ofValue(new SourceFile(
+            fileName, SourceLoader.decode(bytes), contentHash
+        ));
+    }
+
+    private static String decode(ByteBuffer bytes) {
+        boolean isAscii = true;
+        for(int byteI = bytes.position(); byteI < bytes.limit(); byteI += 1) {
+            if(bytes.get(byteI) >= 0) { continue; }
+            isAscii = false;
+            break;
+        }
+        if(!isAscii) {
+            return StandardCharsets.UTF_8.decode(bytes).toString();
+        }
+        // ASCII is a subset of Latin-1, which strings are able to store
+        // directly without any decoding
+        if(bytes.hasArray()) {
+            return new String(
+                bytes.array(), bytes.arrayOffset() + bytes.position(),
+                bytes.remaining(), StandardCharsets.ISO_8859_1
+            );
+        }
+        byte[] copied = new byte[bytes.remaining()];
+        bytes.get(copied);
+        return new String(copied, StandardCharsets.ISO_8859_1);
+    }
+
+}
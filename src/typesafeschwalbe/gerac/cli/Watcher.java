@@ -0,0 +1,124 @@
+
+package typesafeschwalbe.gerac.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import typesafeschwalbe.gerac.compiler.Error;
+import typesafeschwalbe.gerac.compiler.Fingerprint;
+import typesafeschwalbe.gerac.compiler.frontend.ParseCache;
+
+// Compiles once and then again every time one of the input files changes.
+// Parsed files are kept in memory between compilations, meaning that only
+// modified files need to be parsed again. The symbols are then compared to
+// the ones of the last compilation - if none of the symbols the output is
+// made from (or any symbol of the same name) has changed, the output is
+// left as it is, without checking, lowering or generating anything.
+// Compilations that check all symbols or generate symbol info are never
+// skipped, since those depend on every symbol.
+public class Watcher {
+
+    // editors often write a file in multiple steps, which is why
+    // a compilation is only started once the events have settled
+    private static final long SETTLE_MILLIS = 50;
+
+    private final ParseCache parseCache;
+    // compilations run in parallel
+    private final Map<String, Fingerprint> fingerprints;
+
+    public Watcher() {
+        this.parseCache = new ParseCache();
+        this.fingerprints = new ConcurrentHashMap<>();
+    }
+
+    public int run(
+        String[] args, List<String> fileNames, boolean colored,
+        PrintStream err
+    ) {
+        Set<Path> files = new HashSet<>();
+        Map<WatchKey, Path> directories = new HashMap<>();
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for(String fileName: fileNames) {
+                Path file = Paths.get(fileName).toAbsolutePath().normalize();
+                files.add(file);
+                Path directory = file.getParent();
+                if(directories.containsValue(directory)) { continue; }
+                // files are often replaced instead of modified on save
+                WatchKey key = directory.register(
+                    watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+                );
+                directories.put(key, directory);
+            }
+        } catch(IOException e) {
+            return Main.reportErrors(
+                List.of(new Error(
+                    "Unable to watch the input files: "
+                        + "'" + e.getMessage() + "'"
+                )),
+                new HashMap<>(), colored, err
+            );
+        }
+        this.compile(args, err);
+        while(true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch(InterruptedException e) {
+                return 0;
+            }
+            boolean changed = false;
+            while(key != null) {
+                Path directory = directories.get(key);
+                for(WatchEvent<?> event: key.pollEvents()) {
+                    if(!(event.context() instanceof Path)) { continue; }
+                    Path file = directory.resolve((Path) event.context());
+                    changed |= files.contains(file);
+                }
+                key.reset();
+                try {
+                    key = watchService.poll(
+                        SETTLE_MILLIS, TimeUnit.MILLISECONDS
+                    );
+                } catch(InterruptedException e) {
+                    return 0;
+                }
+            }
+            if(changed) {
+                this.compile(args, err);
+            }
+        }
+    }
+
+    private void compile(String[] args, PrintStream err) {
+        long start = System.nanoTime();
+        int exitCode = Main.run(
+            args, this.parseCache, Optional.of(this.fingerprints), err
+        );
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        err.println(
+            (exitCode == 0? "compiled" : "failed") + " in " + millis + " ms"
+                + ", watching for changes..."
+        );
+        err.flush();
+    }
+
+}
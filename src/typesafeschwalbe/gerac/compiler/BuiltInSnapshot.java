@@ -0,0 +1,178 @@
+
+package typesafeschwalbe.gerac.compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import typesafeschwalbe.gerac.compiler.frontend.AstNode;
+import typesafeschwalbe.gerac.compiler.frontend.AstSerializer;
+import typesafeschwalbe.gerac.compiler.frontend.Lexer;
+import typesafeschwalbe.gerac.compiler.frontend.SourceParser;
+
+// Holds the syntax trees of all built-in source files in serialized form.
+// The snapshot is generated while building the compiler (see the makefile)
+// and shipped as a resource. If it's missing or doesn't match the sources
+// embedded in 'BuiltIns', it is instead generated once per process.
+public class BuiltInSnapshot {
+
+    private static final String RESOURCE_NAME = "builtins.ast";
+    private static final int MAGIC = 0x47455242; // 'GERB'
+
+    private static record Key(Target target, String fileName) {}
+
+    private static Map<Key, byte[]> snapshot = null;
+
+    private BuiltInSnapshot() {}
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1) {
+            System.err.println("usage: BuiltInSnapshot <output file>");
+            System.exit(1);
+        }
+        Files.write(Paths.get(args[0]), BuiltInSnapshot.generate());
+    }
+
+    // Returns a fresh copy of the syntax tree of the given built-in file,
+    // since the nodes get annotated while checking types.
+    public static Optional<List<AstNode>> get(String fileName, Target target) {
+        byte[] serialized = BuiltInSnapshot.snapshot()
+            .get(new Key(target, fileName));
+        if(serialized == null) {
+            return Optional.empty();
+        }
+        try(DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(serialized)
+        )) {
+            return Optional.of(new AstSerializer.Reader(
+                in, fileName, BuiltIns.PARSED_FILES.get(fileName), target
+            ).readNodes());
+        } catch(IOException e) {
+            throw new RuntimeException("should not be encountered!");
+        }
+    }
+
+    private static synchronized Map<Key, byte[]> snapshot() {
+        if(BuiltInSnapshot.snapshot != null) {
+            return BuiltInSnapshot.snapshot;
+        }
+        Optional<Map<Key, byte[]>> loaded = Optional.empty();
+        try(InputStream resource = BuiltInSnapshot.class
+            .getResourceAsStream(RESOURCE_NAME)) {
+            if(resource != null) {
+                loaded = BuiltInSnapshot.read(resource.readAllBytes());
+            }
+        } catch(IOException e) {
+            // generated below instead
+        }
+        if(loaded.isEmpty()) {
+            loaded = BuiltInSnapshot.read(BuiltInSnapshot.generate());
+        }
+        if(loaded.isEmpty()) {
+            throw new RuntimeException("should not be encountered!");
+        }
+        BuiltInSnapshot.snapshot = loaded.get();
+        return BuiltInSnapshot.snapshot;
+    }
+
+    private static byte[] generate() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(AstSerializer.FORMAT_VERSION);
+            out.writeInt(Target.values().length * BuiltIns.PARSED_FILES.size());
+            for(Target target: Target.values()) {
+                for(String fileName: BuiltIns.PARSED_FILES.keySet()) {
+                    String content = BuiltIns.PARSED_FILES.get(fileName);
+                    List<AstNode> nodes;
+                    try {
+                        nodes = new SourceParser(
+                            new Lexer(fileName, content), target
+                        ).parseGlobalStatements();
+                    } catch(ErrorException e) {
+                        throw new RuntimeException(
+                            "built-in file '" + fileName + "' is invalid!"
+                        );
+                    }
+                    ByteArrayOutputStream fileBytes
+                        = new ByteArrayOutputStream();
+                    try(DataOutputStream fileOut
+                        = new DataOutputStream(fileBytes)) {
+                        new AstSerializer.Writer(fileOut).writeNodes(nodes);
+                    }
+                    out.writeUTF(target.targetName);
+                    out.writeUTF(fileName);
+                    out.write(BuiltInSnapshot.hash(content));
+                    out.writeInt(fileBytes.size());
+                    fileBytes.writeTo(out);
+                }
+            }
+        } catch(IOException e) {
+            throw new RuntimeException("should not be encountered!");
+        }
+        return bytes.toByteArray();
+    }
+
+    // Returns nothing if the snapshot is broken or outdated.
+    private static Optional<Map<Key, byte[]>> read(byte[] serialized) {
+        Map<String, Target> targets = new HashMap<>();
+        for(Target target: Target.values()) {
+            targets.put(target.targetName, target);
+        }
+        Map<Key, byte[]> files = new HashMap<>();
+        try(DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(serialized)
+        )) {
+            if(in.readInt() != MAGIC) { return Optional.empty(); }
+            if(in.readInt() != AstSerializer.FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            int fileC = in.readInt();
+            for(int fileI = 0; fileI < fileC; fileI += 1) {
+                Target target = targets.get(in.readUTF());
+                String fileName = in.readUTF();
+                byte[] contentHash = new byte[32];
+                in.readFully(contentHash);
+                byte[] nodes = new byte[in.readInt()];
+                in.readFully(nodes);
+                String content = BuiltIns.PARSED_FILES.get(fileName);
+                if(target == null || content == null) { continue; }
+                if(!Arrays.equals(contentHash, BuiltInSnapshot.hash(content))) {
+                    return Optional.empty();
+                }
+                files.put(new Key(target, fileName), nodes);
+            }
+        } catch(IOException e) {
+            return Optional.empty();
+        }
+        int expectedC = Target.values().length * BuiltIns.PARSED_FILES.size();
+        if(files.size() != expectedC) {
+            return Optional.empty();
+        }
+        return Optional.of(files);
+    }
+
+    private static byte[] hash(String content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        return digest.digest(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -1,6 +1,8 @@
 
 package typesafeschwalbe.gerac.compiler;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -21,8 +23,9 @@ public class BuiltIns {
     public static final String BUILTIN_FILE_NAME = "<built-in>";
     public static final String BUILTIN_CORE_FILE_NAME = "<built-in>/core.gera";
 
-    public static void addParsedFiles(Map<String, String> files) {
-        files.put(BUILTIN_CORE_FILE_NAME, """
+    // built-in source files that are parsed like user-provided files
+    public static final Map<String, String> PARSED_FILES = Map.of(
+        BUILTIN_CORE_FILE_NAME, """
             /// A module containing special procedures implemented
             /// by the compiler. 
             /// Every module implicitly does `use core::*`.
@@ -54,11 +57,18 @@ public class BuiltIns {
                 }
             }
             """
-        );
-    }
+    );
+
+    // all built-in source files (used for reporting errors)
+    public static final Map<String, String> FILES = Map.of(
+        BUILTIN_CORE_FILE_NAME, PARSED_FILES.get(BUILTIN_CORE_FILE_NAME),
+        BUILTIN_FILE_NAME, "<built-in>"
+    );
 
-    public static void addUnparsedFiles(Map<String, String> files) {
-        files.put(BUILTIN_FILE_NAME, "<built-in>");
+    public static Map<String, String> withFiles(Map<String, String> files) {
+        Map<String, String> allFiles = new HashMap<>(files);
+        allFiles.putAll(BuiltIns.FILES);
+        return Collections.unmodifiableMap(allFiles);
     }
 
     public static void addSymbols(TypeContext ctx, Symbols symbols) {
@@ -85,7 +95,7 @@ public class BuiltIns {
                 return new Symbols.BuiltinContext(constraints, List.of(a, b), r);
             };
             symbols.add(
-                new Namespace(List.of("core", "addr_eq")),
+                Namespace.of(List.of("core", "addr_eq")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -94,7 +104,7 @@ public class BuiltIns {
                         List.of("a", "b"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -133,7 +143,7 @@ public class BuiltIns {
                 return new Symbols.BuiltinContext(constraints, List.of(a, b), r);
             };
             symbols.add(
-                new Namespace(List.of("core", "tag_eq")),
+                Namespace.of(List.of("core", "tag_eq")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -142,7 +152,7 @@ public class BuiltIns {
                         List.of("a", "b"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -171,7 +181,7 @@ public class BuiltIns {
                 return new Symbols.BuiltinContext(constraints, List.of(thing), r);
             };
             symbols.add(
-                new Namespace(List.of("core", "length")),
+                Namespace.of(List.of("core", "length")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -180,7 +190,7 @@ public class BuiltIns {
                         List.of("thing"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -226,7 +236,7 @@ public class BuiltIns {
                 return new Symbols.BuiltinContext(constraints, List.of(iter), r);
             };
             symbols.add(
-                new Namespace(List.of("core", "exhaust")),
+                Namespace.of(List.of("core", "exhaust")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -235,7 +245,7 @@ public class BuiltIns {
                         List.of("iter"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -259,7 +269,7 @@ public class BuiltIns {
                 return new Symbols.BuiltinContext(constraints, List.of(reason), r);
             };
             symbols.add(
-                new Namespace(List.of("core", "panic")),
+                Namespace.of(List.of("core", "panic")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -268,7 +278,7 @@ public class BuiltIns {
                         List.of("reason"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -298,7 +308,7 @@ public class BuiltIns {
                 return new Symbols.BuiltinContext(constraints, List.of(thing), r);
             };
             symbols.add(
-                new Namespace(List.of("core", "as_str")),
+                Namespace.of(List.of("core", "as_str")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -307,7 +317,7 @@ public class BuiltIns {
                         List.of("thing"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -334,7 +344,7 @@ public class BuiltIns {
                 return new Symbols.BuiltinContext(constraints, List.of(thing), r);
             };
             symbols.add(
-                new Namespace(List.of("core", "as_int")),
+                Namespace.of(List.of("core", "as_int")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -343,7 +353,7 @@ public class BuiltIns {
                         List.of("thing"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -371,7 +381,7 @@ public class BuiltIns {
                 return new Symbols.BuiltinContext(constraints, List.of(thing), r);
             };
             symbols.add(
-                new Namespace(List.of("core", "as_flt")),
+                Namespace.of(List.of("core", "as_flt")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -380,7 +390,7 @@ public class BuiltIns {
                         List.of("thing"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -429,7 +439,7 @@ public class BuiltIns {
                 );
             };
             symbols.add(
-                new Namespace(List.of("core", "substring")),
+                Namespace.of(List.of("core", "substring")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -438,7 +448,7 @@ public class BuiltIns {
                         List.of("source", "start", "end"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -481,7 +491,7 @@ public class BuiltIns {
                 );
             };
             symbols.add(
-                new Namespace(List.of("core", "concat")),
+                Namespace.of(List.of("core", "concat")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -490,7 +500,7 @@ public class BuiltIns {
                         List.of("a", "b"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
@@ -515,7 +525,7 @@ public class BuiltIns {
                 return new Symbols.BuiltinContext(constraints, List.of(thing), r);
             };
             symbols.add(
-                new Namespace(List.of("core", "hash")),
+                Namespace.of(List.of("core", "hash")),
                 new Symbols.Symbol(
                     Symbols.Symbol.Type.PROCEDURE, true,
                     new Source(BUILTIN_FILE_NAME, 0, 0),
@@ -524,7 +534,7 @@ public class BuiltIns {
                         List.of("thing"),
                         Optional.of(builtin),
                         Optional.empty(), Optional.empty(), Optional.empty(),
-                        Optional.empty(), Optional.empty()
+                        Optional.empty(), Optional.empty(), Optional.empty()
                     ),
                     Optional.empty(),
                     Optional.of(
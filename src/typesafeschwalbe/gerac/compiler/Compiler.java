@@ -1,70 +1,117 @@
 
 package typesafeschwalbe.gerac.compiler;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import typesafeschwalbe.gerac.compiler.frontend.Lexer;
 import typesafeschwalbe.gerac.compiler.frontend.Namespace;
-import typesafeschwalbe.gerac.compiler.frontend.SourceParser;
+import typesafeschwalbe.gerac.compiler.frontend.ParseCache;
 import typesafeschwalbe.gerac.compiler.types.ConstraintSolver;
 import typesafeschwalbe.gerac.compiler.types.TypeContext;
 import typesafeschwalbe.gerac.compiler.frontend.AstNode;
 import typesafeschwalbe.gerac.compiler.frontend.ExternalMappingsParser;
 import typesafeschwalbe.gerac.compiler.backend.CodeGen;
+import typesafeschwalbe.gerac.compiler.backend.Ir;
 import typesafeschwalbe.gerac.compiler.backend.Lowerer;
 
 public class Compiler {
 
-    public static record Output(String code, Optional<String> symbolInfo) {}
+    public static record Output(
+        CodeGen codeGen, Namespace mainPath, Optional<String> symbolInfo,
+        List<String> dependencies, Timings timings, MemoryReport memoryReport,
+        Supplier<Fingerprint> fingerprint
+    ) {
+        // the code is only generated once it's requested, so that it can
+        // be streamed directly to its destination
+        public void writeCode(Appendable out) throws IOException {
+            Timings.Span span = this.timings.begin(Timings.CODE_GENERATION);
+            CharCounter counter = new CharCounter(out);
+            try {
+                this.codeGen.generate(this.mainPath, counter);
+            } finally {
+                this.timings.end(span);
+            }
+            // most of the output is buffered before it gets written
+            this.memoryReport.record(
+                Timings.CODE_GENERATION, "output buffers",
+                counter.count * 2, 0
+            );
+        }
+    }
+
+    private static class CharCounter implements Appendable {
+
+        private final Appendable out;
+        private long count;
+
+        private CharCounter(Appendable out) {
+            this.out = out;
+            this.count = 0;
+        }
+
+        @Override
+        public Appendable append(CharSequence s) throws IOException {
+            this.count += s.length();
+            this.out.append(s);
+            return this;
+        }
+
+        @Override
+        public Appendable append(
+            CharSequence s, int start, int end
+        ) throws IOException {
+            this.count += end - start;
+            this.out.append(s, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            this.count += 1;
+            this.out.append(c);
+            return this;
+        }
+
+    }
 
     public static Result<Output> compile(
         Map<String, String> files, Target target, String mainRaw,
         boolean generateSymbolInfo
     ) {
-        Symbols symbols = new Symbols();
+        return Compiler.compile(
+            files, target, mainRaw, generateSymbolInfo, false,
+            new ParseCache(), Timings.disabled(), Trace.disabled(),
+            MemoryReport.disabled()
+        );
+    }
+
+    public static Result<Output> compile(
+        Map<String, String> files, Target target, String mainRaw,
+        boolean generateSymbolInfo, boolean checkAllSymbols,
+        ParseCache parseCache, Timings timings, Trace trace,
+        MemoryReport memoryReport
+    ) {
         TypeContext typeContext = new TypeContext();
-        BuiltIns.addParsedFiles(files);
-        BuiltIns.addSymbols(typeContext, symbols);
-        for(String fileName: files.keySet()) {
-            String fileContent = files.get(fileName);
-            Lexer fileLexer = new Lexer(fileName, fileContent);
-            if(fileName.endsWith(".gera")) {
-                List<AstNode> nodes;
-                try {
-                    SourceParser fileParser
-                        = new SourceParser(fileLexer, target);
-                    nodes = fileParser.parseGlobalStatements();
-                } catch(ErrorException e) {
-                    BuiltIns.addUnparsedFiles(files);
-                    return Result.ofError(e.error);
-                }
-                Optional<Error> symbolAddError = symbols.addAll(nodes);
-                if(symbolAddError.isPresent()) {
-                    BuiltIns.addUnparsedFiles(files);
-                    return Result.ofError(symbolAddError.get());
-                }
-            } else if(fileName.endsWith(".gem")) {
-                try {
-                    ExternalMappingsParser fileParser
-                        = new ExternalMappingsParser(
-                            fileLexer, symbols, typeContext
-                        );
-                    fileParser.parseStatements();
-                } catch(ErrorException e) {
-                    BuiltIns.addUnparsedFiles(files);
-                    return Result.ofError(e.error);
-                }
-            } else {
-                BuiltIns.addUnparsedFiles(files);
-                return Result.ofError(new Error(
-                    "Unsupported file extension for file '" + fileName + "'"
-                ));
-            }
+        // the given files are never modified, the built-in files are
+        // only added to a copy
+        Map<String, String> sourceFiles = BuiltIns.withFiles(files);
+        Result<Symbols> registered = Compiler.registerSymbols(
+            files, sourceFiles, target, typeContext, parseCache,
+            timings, trace, memoryReport
+        );
+        if(registered.isError()) {
+            return Result.ofError(registered.getError());
         }
-        BuiltIns.addUnparsedFiles(files);
-        Namespace mainPath = new Namespace(List.of(mainRaw.split("::")));
+        Symbols symbols = registered.getValue();
+        memoryReport.measure(Timings.SYMBOL_REGISTRATION, "symbols", symbols);
+        Namespace mainPath = Namespace.of(List.of(mainRaw.split("::")));
         Optional<Symbols.Symbol> main = symbols.get(mainPath);
         if(main.isEmpty() || main.get().type != Symbols.Symbol.Type.PROCEDURE) {
             return Result.ofError(new Error(
@@ -78,30 +125,307 @@ public class Compiler {
                 "The main procedure '" + mainRaw + "' has more than 0 arguments"
             ));
         }
-        ConstraintSolver solver = new ConstraintSolver();
+        // symbol info needs the types of all symbols
+        boolean checkAll = checkAllSymbols || generateSymbolInfo;
+        Timings.Span typeChecking = timings.begin(Timings.TYPE_CHECKING);
+        ConstraintSolver solver = new ConstraintSolver(trace);
         List<Error> typeErrors = solver.checkSymbols(
-            symbols, typeContext, mainPath
+            symbols, typeContext, mainPath, checkAll
         );
+        timings.end(typeChecking);
         if(typeErrors.size() > 0) {
             return Result.ofError(typeErrors);
         }
+        memoryReport.measure(Timings.TYPE_CHECKING, "symbols", symbols);
+        memoryReport.measure(
+            Timings.TYPE_CHECKING, "type variables", typeContext.substitutes
+        );
         Optional<String> symbolInfo = Optional.empty();
         if(generateSymbolInfo) {
+            Timings.Span infoGeneration = timings.begin(Timings.SYMBOL_INFO);
             SymbolInfoGen infoGen = new SymbolInfoGen(
                 symbols, typeContext
             );
             symbolInfo = Optional.of(infoGen.generate());
+            timings.end(infoGeneration);
         }
-        Lowerer lowerer = new Lowerer(files, symbols, typeContext);
+        Timings.Span lowering = timings.begin(Timings.LOWERING);
+        Lowerer lowerer = new Lowerer(sourceFiles, symbols, typeContext, trace);
         Optional<Error> loweringError = lowerer.lowerProcedures();
+        timings.end(lowering);
         if(loweringError.isPresent()) {
             return Result.ofError(loweringError.get());
         }
+        if(timings.isEnabled()) {
+            Compiler.countStatistics(symbols, typeContext, timings);
+        }
+        if(memoryReport.isEnabled()) {
+            memoryReport.measure(Timings.LOWERING, "symbols", symbols);
+            memoryReport.measure(
+                Timings.LOWERING, "static values", lowerer.staticValues
+            );
+            memoryReport.measure(
+                Timings.LOWERING, "ir bodies", Compiler.irBodies(symbols)
+            );
+        }
         CodeGen codeGen = target.codeGen.create(
-            files, symbols, typeContext, lowerer.staticValues
+            sourceFiles, symbols, typeContext, lowerer.staticValues, trace
+        );
+        List<String> dependencies = Compiler.dependencies(symbols);
+        return Result.ofValue(new Output(
+            codeGen, mainPath, symbolInfo, dependencies,
+            timings, memoryReport,
+            // only computed if requested, since it's only needed when
+            // compiling the same files again
+            () -> Fingerprint.of(
+                target, mainRaw, symbols, sourceFiles, dependencies
+            )
+        ));
+    }
+
+    // Checks if the given files would result in the same output as the
+    // compilation the given fingerprint is from. Only the symbols are
+    // registered, meaning that this is much cheaper than compiling again.
+    public static boolean isUnchanged(
+        Map<String, String> files, Target target, String mainRaw,
+        ParseCache parseCache, Fingerprint previous
+    ) {
+        Map<String, String> sourceFiles = BuiltIns.withFiles(files);
+        Result<Symbols> registered = Compiler.registerSymbols(
+            files, sourceFiles, target, new TypeContext(), parseCache,
+            Timings.disabled(), Trace.disabled(), MemoryReport.disabled()
+        );
+        // errors are reported by compiling again
+        if(registered.isError()) { return false; }
+        return previous.matches(
+            target, mainRaw, registered.getValue(), sourceFiles
         );
-        String output = codeGen.generate(mainPath);
-        return Result.ofValue(new Output(output, symbolInfo));
+    }
+
+    // Parses the given files (or gets them from the cache) and registers
+    // all symbols declared in them.
+    private static Result<Symbols> registerSymbols(
+        Map<String, String> files, Map<String, String> sourceFiles,
+        Target target, TypeContext typeContext, ParseCache parseCache,
+        Timings timings, Trace trace, MemoryReport memoryReport
+    ) {
+        Symbols symbols = new Symbols();
+        BuiltIns.addSymbols(typeContext, symbols);
+        // source files are parsed in parallel, but registered in order -
+        // the built-in files are inserted into a hash set after the given
+        // files, like they used to be added to the given map, since the
+        // order of the output depends on the order of registration
+        Set<String> registrationOrder = new HashSet<>();
+        for(String fileName: files.keySet()) {
+            // built-in files can't be replaced
+            if(BuiltIns.FILES.containsKey(fileName)) { continue; }
+            registrationOrder.add(fileName);
+        }
+        registrationOrder.addAll(BuiltIns.PARSED_FILES.keySet());
+        List<String> fileNames = new ArrayList<>(registrationOrder);
+        Timings.Span parsing = timings.beginParallel(Timings.PARSING);
+        List<Result<List<AstNode>>> parsedFiles = fileNames.parallelStream()
+            .map(fileName -> fileName.endsWith(".gera")
+                ? Compiler.parseSourceFile(
+                    fileName, sourceFiles.get(fileName), target, parseCache,
+                    timings, trace
+                )
+                : null
+            )
+            .toList();
+        timings.end(parsing);
+        memoryReport.measure(Timings.PARSING, "syntax trees", parsedFiles);
+        for(int fileI = 0; fileI < fileNames.size(); fileI += 1) {
+            String fileName = fileNames.get(fileI);
+            String fileContent = sourceFiles.get(fileName);
+            if(fileName.endsWith(".gera")) {
+                Result<List<AstNode>> parsed = parsedFiles.get(fileI);
+                if(parsed.isError()) {
+                    return Result.ofError(parsed.getError());
+                }
+                Timings.Span registration = timings
+                    .begin(Timings.SYMBOL_REGISTRATION);
+                Optional<Error> symbolAddError = symbols
+                    .addAll(parsed.getValue());
+                timings.end(registration);
+                if(symbolAddError.isPresent()) {
+                    return Result.ofError(symbolAddError.get());
+                }
+            } else if(fileName.endsWith(".gem")) {
+                Timings.Span mappingParsing = timings.begin(Timings.PARSING);
+                Trace.Span span = trace.begin(Trace.PARSING, fileName);
+                try {
+                    ExternalMappingsParser fileParser
+                        = new ExternalMappingsParser(
+                            new Lexer(fileName, fileContent),
+                            symbols, typeContext
+                        );
+                    fileParser.parseStatements();
+                } catch(ErrorException e) {
+                    return Result.ofError(e.error);
+                } finally {
+                    trace.end(span);
+                    timings.end(mappingParsing);
+                }
+            } else {
+                return Result.ofError(new Error(
+                    "Unsupported file extension for file '" + fileName + "'"
+                ));
+            }
+        }
+        return Result.ofValue(symbols);
+    }
+
+    // Returns the files that declare at least one of the checked symbols,
+    // meaning that modifying any other file has no effect on the output.
+    private static List<String> dependencies(Symbols symbols) {
+        Set<String> files = new HashSet<>();
+        for(Namespace path: symbols.allSymbolPaths()) {
+            Symbols.Symbol symbol = symbols.get(path).get();
+            if(symbol.variantCount() == 0) { continue; }
+            String file = symbol.source.file();
+            if(BuiltIns.FILES.containsKey(file)) { continue; }
+            files.add(file);
+        }
+        return files.stream().sorted().toList();
+    }
+
+    private static List<List<Ir.Instr>> irBodies(Symbols symbols) {
+        List<List<Ir.Instr>> bodies = new ArrayList<>();
+        for(Namespace path: symbols.allSymbolPaths()) {
+            Symbols.Symbol symbol = symbols.get(path).get();
+            if(symbol.type != Symbols.Symbol.Type.PROCEDURE) { continue; }
+            for(
+                int variantI = 0; 
+                variantI < symbol.variantCount(); 
+                variantI += 1
+            ) {
+                if(symbol.mappedVariantIdx(variantI) != variantI) { continue; }
+                Symbols.Symbol.Procedure variant = symbol.getVariant(variantI);
+                variant.ir_body().ifPresent(bodies::add);
+            }
+        }
+        return bodies;
+    }
+
+    private static void countStatistics(
+        Symbols symbols, TypeContext typeContext, Timings timings
+    ) {
+        long variantCount = 0;
+        long instrCount = 0;
+        for(Namespace path: symbols.allSymbolPaths()) {
+            Symbols.Symbol symbol = symbols.get(path).get();
+            for(
+                int variantI = 0; 
+                variantI < symbol.variantCount(); 
+                variantI += 1
+            ) {
+                if(symbol.mappedVariantIdx(variantI) != variantI) { continue; }
+                variantCount += 1;
+                if(symbol.type != Symbols.Symbol.Type.PROCEDURE) { continue; }
+                Symbols.Symbol.Procedure variant = symbol.getVariant(variantI);
+                if(variant.ir_body().isEmpty()) { continue; }
+                instrCount += Compiler
+                    .countInstructions(variant.ir_body().get());
+            }
+        }
+        timings.count("symbols", symbols.allSymbolPaths().size());
+        timings.count("variants", variantCount);
+        timings.count("type variables", typeContext.varVount());
+        timings.count("ir instructions", instrCount);
+    }
+
+    private static long countInstructions(List<Ir.Instr> instrs) {
+        long count = 0;
+        for(Ir.Instr instr: instrs) {
+            count += 1;
+            switch(instr.type) {
+                case LOAD_CLOSURE: {
+                    Ir.Instr.LoadClosure data = instr.getValue();
+                    count += Compiler.countInstructions(data.body());
+                } break;
+                case BRANCH_ON_VALUE: {
+                    Ir.Instr.BranchOnValue data = instr.getValue();
+                    for(List<Ir.Instr> branchBody: data.branchBodies()) {
+                        count += Compiler.countInstructions(branchBody);
+                    }
+                    count += Compiler.countInstructions(data.elseBody());
+                } break;
+                case BRANCH_ON_VARIANT: {
+                    Ir.Instr.BranchOnVariant data = instr.getValue();
+                    for(List<Ir.Instr> branchBody: data.branchBodies()) {
+                        count += Compiler.countInstructions(branchBody);
+                    }
+                    count += Compiler.countInstructions(data.elseBody());
+                } break;
+                default: {}
+            }
+        }
+        return count;
+    }
+
+    // Parses all source files for each of the given targets and puts them
+    // into the given cache, so that compilations started afterwards
+    // don't need to parse them again. Errors are reported by those.
+    public static void parseAhead(
+        Map<String, String> files, List<Target> targets,
+        ParseCache parseCache, Timings timings, Trace trace
+    ) {
+        Map<String, String> sourceFiles = BuiltIns.withFiles(files);
+        Timings.Span parsing = timings.beginParallel(Timings.PARSING);
+        targets.parallelStream()
+            .flatMap(target -> sourceFiles.keySet().stream()
+                .filter(fileName -> fileName.endsWith(".gera"))
+                .map(fileName -> Map.entry(fileName, target))
+            )
+            .forEach(file -> Compiler.parseSourceFile(
+                file.getKey(), sourceFiles.get(file.getKey()), file.getValue(),
+                parseCache, timings, trace
+            ));
+        timings.end(parsing);
+    }
+
+    private static Result<List<AstNode>> parseSourceFile(
+        String fileName, String fileContent, Target target,
+        ParseCache parseCache, Timings timings, Trace trace
+    ) {
+        Timings.Span task = timings.beginTask(Timings.PARSING);
+        Trace.Span span = trace.begin(Trace.PARSING, fileName)
+            .arg("target", target.targetName);
+        try {
+            return Compiler.parseSourceFile(
+                fileName, fileContent, target, parseCache
+            );
+        } finally {
+            trace.end(span);
+            timings.end(task);
+        }
+    }
+
+    private static Result<List<AstNode>> parseSourceFile(
+        String fileName, String fileContent, Target target,
+        ParseCache parseCache
+    ) {
+        // built-in files are never parsed again
+        if(BuiltIns.PARSED_FILES.containsKey(fileName)) {
+            Optional<List<AstNode>> snapshot = BuiltInSnapshot
+                .get(fileName, target);
+            if(snapshot.isPresent()) {
+                return Result.ofValue(snapshot.get());
+            }
+        }
+        Optional<List<AstNode>> cached = parseCache
+            .get(fileName, fileContent, target);
+        if(cached.isPresent()) {
+            return Result.ofValue(cached.get());
+        }
+        try {
+            return Result.ofValue(
+                parseCache.parse(fileName, fileContent, target)
+            );
+        } catch(ErrorException e) {
+            return Result.ofError(e.error);
+        }
     }
 
 }
\ No newline at end of file
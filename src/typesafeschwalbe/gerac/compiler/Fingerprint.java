@@ -0,0 +1,150 @@
+
+package typesafeschwalbe.gerac.compiler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import typesafeschwalbe.gerac.compiler.frontend.Namespace;
+
+// Describes everything the output of a compilation depends on. If the
+// symbols of a later compilation still match, its output would be the same,
+// meaning that it doesn't need to be checked, lowered or generated again.
+public record Fingerprint(
+    Target target, String main,
+    Set<List<String>> symbolPaths, Set<List<String>> modulePaths,
+    Map<List<String>, Fingerprint.Declaration> declarations,
+    Map<String, String> mappingFiles,
+    List<String> dependencies
+) {
+
+    // Everything about a single symbol that ends up in the output.
+    // The line is included since the generated code refers to it.
+    public static record Declaration(
+        Symbols.Symbol.Type type, boolean isPublic, String file, int line,
+        String text, List<String> usages, Optional<String> externalName
+    ) {}
+
+    // Only the symbols the output is made from (those that have been checked)
+    // are recorded, together with all symbols of the same name, since any
+    // of those may be picked instead when a call gets resolved.
+    static Fingerprint of(
+        Target target, String main, Symbols symbols,
+        Map<String, String> sourceFiles, List<String> dependencies
+    ) {
+        Set<String> usedNames = new HashSet<>();
+        for(Namespace path: symbols.allSymbolPaths()) {
+            if(symbols.get(path).get().variantCount() == 0) { continue; }
+            usedNames.add(Fingerprint.name(path));
+        }
+        Set<List<String>> symbolPaths = new HashSet<>();
+        Map<List<String>, Declaration> declarations = new HashMap<>();
+        Map<String, String> mappingFiles = new HashMap<>();
+        Map<String, int[]> lineStarts = new HashMap<>();
+        for(Namespace path: symbols.allSymbolPaths()) {
+            symbolPaths.add(path.elements());
+            if(!usedNames.contains(Fingerprint.name(path))) { continue; }
+            Symbols.Symbol symbol = symbols.get(path).get();
+            declarations.put(path.elements(), Fingerprint.declaration(
+                symbol, sourceFiles, lineStarts
+            ));
+            String file = symbol.source.file();
+            if(file.endsWith(".gem")) {
+                // type declarations of mapping files aren't symbols
+                mappingFiles.put(file, sourceFiles.get(file));
+            }
+        }
+        Set<List<String>> modulePaths = new HashSet<>();
+        for(Namespace path: symbols.allDeclaredModulePaths()) {
+            modulePaths.add(path.elements());
+        }
+        return new Fingerprint(
+            target, main, symbolPaths, modulePaths, declarations,
+            mappingFiles, dependencies
+        );
+    }
+
+    // Checks if the given symbols (registered, but not yet checked) would
+    // result in the same output as the symbols this fingerprint was made of.
+    boolean matches(
+        Target target, String main, Symbols symbols,
+        Map<String, String> sourceFiles
+    ) {
+        if(target != this.target || !main.equals(this.main)) { return false; }
+        if(symbols.allSymbolPaths().size() != this.symbolPaths.size()) {
+            return false;
+        }
+        for(Namespace path: symbols.allSymbolPaths()) {
+            if(!this.symbolPaths.contains(path.elements())) { return false; }
+        }
+        if(symbols.allDeclaredModulePaths().size() != this.modulePaths.size()) {
+            return false;
+        }
+        for(Namespace path: symbols.allDeclaredModulePaths()) {
+            if(!this.modulePaths.contains(path.elements())) { return false; }
+        }
+        for(String file: this.mappingFiles.keySet()) {
+            String content = sourceFiles.get(file);
+            if(!this.mappingFiles.get(file).equals(content)) { return false; }
+        }
+        Map<String, int[]> lineStarts = new HashMap<>();
+        for(List<String> path: this.declarations.keySet()) {
+            // all paths are known to exist at this point
+            Symbols.Symbol symbol = symbols
+                .get(Namespace.find(path).get()).get();
+            Declaration declaration = Fingerprint.declaration(
+                symbol, sourceFiles, lineStarts
+            );
+            if(!declaration.equals(this.declarations.get(path))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String name(Namespace path) {
+        return path.elements().get(path.elements().size() - 1);
+    }
+
+    private static Declaration declaration(
+        Symbols.Symbol symbol, Map<String, String> sourceFiles,
+        Map<String, int[]> lineStarts
+    ) {
+        Source source = symbol.source;
+        String content = sourceFiles.get(source.file());
+        int[] starts = lineStarts.computeIfAbsent(
+            source.file(), file -> Fingerprint.lineStarts(content)
+        );
+        int line = Arrays.binarySearch(starts, source.startOffset());
+        // offsets inside of a line result in the index of the next line
+        line = line >= 0? line + 1 : -line - 1;
+        return new Declaration(
+            symbol.type, symbol.isPublic, source.file(), line,
+            content.substring(source.startOffset(), source.endOffset()),
+            Arrays.stream(symbol.usages).map(Namespace::toString).toList(),
+            symbol.externalName
+        );
+    }
+
+    // Returns the offsets of the first character of each line
+    // (which is also where 'Source.computeLine' starts counting).
+    private static int[] lineStarts(String content) {
+        int lineCount = 1;
+        for(int charI = 0; charI < content.length(); charI += 1) {
+            if(content.charAt(charI) == '\n') { lineCount += 1; }
+        }
+        int[] starts = new int[lineCount];
+        int lineI = 1;
+        for(int charI = 0; charI < content.length(); charI += 1) {
+            if(content.charAt(charI) != '\n') { continue; }
+            starts[lineI] = charI + 1;
+            lineI += 1;
+        }
+        return starts;
+    }
+
+}
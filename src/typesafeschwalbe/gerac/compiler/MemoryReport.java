@@ -0,0 +1,292 @@
+
+package typesafeschwalbe.gerac.compiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import typesafeschwalbe.gerac.compiler.backend.CodeGen;
+import typesafeschwalbe.gerac.compiler.backend.Interpreter;
+import typesafeschwalbe.gerac.compiler.backend.Lowerer;
+import typesafeschwalbe.gerac.compiler.types.TypeContext;
+
+// Estimates the retained sizes of compiler structures by walking the object
+// graph reachable from them. Sizes assume a 64-bit JVM with compressed
+// references. Classes of the standard library can't be inspected using
+// reflection, which is why collections and strings are estimated based on
+// their contents instead.
+public class MemoryReport {
+
+    private static record Entry(
+        String phase, String structure, long bytes, long objects
+    ) {}
+
+    // these are never entered unless they are the measured structure itself,
+    // since they reference most of the compiler's state
+    private static final Set<Class<?>> OPAQUE = Set.of(
+        Symbols.class, TypeContext.class, Lowerer.class, Interpreter.class
+    );
+
+    private static final MemoryReport DISABLED = new MemoryReport(false);
+
+    public static MemoryReport disabled() {
+        return DISABLED;
+    }
+
+    private final boolean enabled;
+    private final List<Entry> entries;
+
+    private MemoryReport(boolean enabled) {
+        this.enabled = enabled;
+        this.entries = new ArrayList<>();
+        if(enabled) {
+            for(MemoryPoolMXBean pool: MemoryReport.heapPools()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    public MemoryReport() {
+        this(true);
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void measure(String phase, String structure, Object root) {
+        if(!this.enabled) { return; }
+        Estimator estimator = new Estimator(root);
+        estimator.run();
+        this.record(
+            phase, structure, estimator.bytes, estimator.visited.size()
+        );
+    }
+
+    public synchronized void record(
+        String phase, String structure, long bytes, long objects
+    ) {
+        if(!this.enabled) { return; }
+        this.entries.add(new Entry(phase, structure, bytes, objects));
+    }
+
+    public String render() {
+        StringBuilder out = new StringBuilder();
+        this.renderEntries(out);
+        MemoryReport.renderPeakUsage(out);
+        return out.toString();
+    }
+
+    // Renders the reports of multiple compilations, each under its label.
+    // The peak heap usage is shared by all of them.
+    public static String render(Map<String, MemoryReport> labeled) {
+        StringBuilder out = new StringBuilder();
+        for(String label: labeled.keySet()) {
+            out.append(label);
+            out.append(":\n");
+            labeled.get(label).renderEntries(out);
+        }
+        MemoryReport.renderPeakUsage(out);
+        return out.toString();
+    }
+
+    private synchronized void renderEntries(StringBuilder out) {
+        out.append(String.format(
+            "%-24s %-24s %14s %12s\n",
+            "phase", "structure", "retained (KiB)", "objects"
+        ));
+        for(Entry entry: this.entries) {
+            out.append(String.format(
+                "%-24s %-24s %14d %12d\n",
+                entry.phase, entry.structure, entry.bytes / 1024, entry.objects
+            ));
+        }
+    }
+
+    private static void renderPeakUsage(StringBuilder out) {
+        // the peaks of the individual pools don't necessarily happen at the
+        // same time, which makes their sum an upper bound
+        long peakHeap = 0;
+        for(MemoryPoolMXBean pool: MemoryReport.heapPools()) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        out.append(String.format(
+            "peak heap usage: %d KiB (max %d KiB)\n",
+            peakHeap / 1024, Runtime.getRuntime().maxMemory() / 1024
+        ));
+    }
+
+    private static class Estimator {
+
+        private static final int HEADER_SIZE = 12;
+        private static final int ARRAY_HEADER_SIZE = 16;
+        private static final int REFERENCE_SIZE = 4;
+
+        private static final Map<Class<?>, List<Field>> fields
+            = new HashMap<>();
+
+        private final Object root;
+        private final IdentityHashMap<Object, Boolean> visited;
+        private final Deque<Object> stack;
+        private long bytes;
+
+        private Estimator(Object root) {
+            this.root = root;
+            this.visited = new IdentityHashMap<>();
+            this.stack = new ArrayDeque<>();
+            this.bytes = 0;
+        }
+
+        private void run() {
+            this.push(this.root);
+            while(this.stack.size() > 0) {
+                this.visit(this.stack.pop());
+            }
+        }
+
+        private void push(Object object) {
+            if(object == null || this.visited.containsKey(object)) { return; }
+            if(object instanceof Class || object instanceof Enum) { return; }
+            if(object != this.root && (
+                OPAQUE.contains(object.getClass())
+                    || object instanceof CodeGen
+            )) { return; }
+            this.visited.put(object, true);
+            this.stack.push(object);
+        }
+
+        private static long align(long size) {
+            return (size + 7) / 8 * 8;
+        }
+
+        private static int primitiveSize(Class<?> type) {
+            if(type == long.class || type == double.class) { return 8; }
+            if(type == int.class || type == float.class) { return 4; }
+            if(type == short.class || type == char.class) { return 2; }
+            return 1;
+        }
+
+        private void visit(Object object) {
+            Class<?> type = object.getClass();
+            if(type.isArray()) {
+                int length = Array.getLength(object);
+                Class<?> elementType = type.getComponentType();
+                if(elementType.isPrimitive()) {
+                    this.bytes += align(
+                        ARRAY_HEADER_SIZE
+                            + (long) length * primitiveSize(elementType)
+                    );
+                    return;
+                }
+                this.bytes += align(
+                    ARRAY_HEADER_SIZE + (long) length * REFERENCE_SIZE
+                );
+                for(int elementI = 0; elementI < length; elementI += 1) {
+                    this.push(Array.get(object, elementI));
+                }
+                return;
+            }
+            if(object instanceof String) {
+                // object + byte array (assuming compact strings)
+                this.bytes += 24 + align(
+                    ARRAY_HEADER_SIZE + ((String) object).length()
+                );
+                return;
+            }
+            if(object instanceof Number || object instanceof Boolean
+                    || object instanceof Character) {
+                this.bytes += 16;
+                return;
+            }
+            if(object instanceof Optional) {
+                this.bytes += 16;
+                this.push(((Optional<?>) object).orElse(null));
+                return;
+            }
+            if(object instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) object;
+                // map object, table and one node per entry
+                long tableSize = map.size() * 2L * REFERENCE_SIZE;
+                this.bytes += 48
+                    + align(ARRAY_HEADER_SIZE + tableSize)
+                    + map.size() * 32L;
+                for(Map.Entry<?, ?> entry: map.entrySet()) {
+                    this.push(entry.getKey());
+                    this.push(entry.getValue());
+                }
+                return;
+            }
+            if(object instanceof Collection) {
+                Collection<?> collection = (Collection<?>) object;
+                // collection object and backing array (or list nodes)
+                long arraySize = (long) collection.size() * REFERENCE_SIZE;
+                this.bytes += 24
+                    + align(ARRAY_HEADER_SIZE + arraySize)
+                    + (object instanceof Deque? collection.size() * 24L : 0);
+                for(Object element: collection) {
+                    this.push(element);
+                }
+                return;
+            }
+            long size = HEADER_SIZE;
+            for(Field field: Estimator.fieldsOf(type)) {
+                if(field.getType().isPrimitive()) {
+                    size += primitiveSize(field.getType());
+                    continue;
+                }
+                size += REFERENCE_SIZE;
+                try {
+                    this.push(field.get(object));
+                } catch(IllegalAccessException e) {
+                    // only counted as a reference
+                }
+            }
+            this.bytes += align(size);
+        }
+
+        private static List<Field> fieldsOf(Class<?> type) {
+            synchronized(Estimator.fields) {
+                List<Field> cached = Estimator.fields.get(type);
+                if(cached != null) { return cached; }
+                List<Field> found = new ArrayList<>();
+                for(
+                    Class<?> c = type; c != null && c != Object.class;
+                    c = c.getSuperclass()
+                ) {
+                    for(Field field: c.getDeclaredFields()) {
+                        if(Modifier.isStatic(field.getModifiers())) {
+                            continue;
+                        }
+                        // fields of standard library classes are only
+                        // counted, but not followed
+                        field.trySetAccessible();
+                        found.add(field);
+                    }
+                }
+                Estimator.fields.put(type, found);
+                return found;
+            }
+        }
+
+    }
+
+}
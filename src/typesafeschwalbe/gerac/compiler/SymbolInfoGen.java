@@ -32,7 +32,7 @@ public class SymbolInfoGen {
         for(Namespace symbolPath: this.symbols.allSymbolPaths()) {
             List<String> modulePath = new ArrayList<>(symbolPath.elements());
             modulePath.remove(modulePath.size() - 1);
-            modules.add(new Namespace(modulePath));
+            modules.add(Namespace.of(modulePath));
         }
     }
 
@@ -2,6 +2,8 @@
 package typesafeschwalbe.gerac.compiler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -13,7 +15,9 @@ import java.util.function.Function;
 import typesafeschwalbe.gerac.compiler.backend.Ir;
 import typesafeschwalbe.gerac.compiler.backend.Value;
 import typesafeschwalbe.gerac.compiler.frontend.AstNode;
+import typesafeschwalbe.gerac.compiler.frontend.DeferredBody;
 import typesafeschwalbe.gerac.compiler.frontend.Namespace;
+import typesafeschwalbe.gerac.compiler.types.NodeAnnotations;
 import typesafeschwalbe.gerac.compiler.types.TypeConstraint;
 import typesafeschwalbe.gerac.compiler.types.TypeVariable;
 
@@ -49,6 +53,7 @@ public class Symbols {
             Optional<List<TypeVariable>> argumentTypes,
             Optional<TypeVariable> returnType,
             Optional<List<AstNode>> body,
+            Optional<NodeAnnotations> annotations,
             Optional<Ir.Context> ir_context,
             Optional<List<Ir.Instr>> ir_body
         ) {}
@@ -56,6 +61,7 @@ public class Symbols {
         public static record Variable(
             Optional<TypeVariable> valueType,
             Optional<AstNode> valueNode,
+            Optional<NodeAnnotations> annotations,
             Optional<Value> value
         ) {}
 
@@ -125,16 +131,38 @@ public class Symbols {
 
     public static record Module(Source source, Optional<String> docComment) {}
 
-    private final Map<Namespace, Symbol> symbols;
+    // symbols declared with the same usages share the same array,
+    // which is compared by identity
+    private static record Resolution(
+        Namespace[] usages, Namespace path, String file
+    ) {}
+
+    // indexed using the ids of the symbol paths
+    private Symbol[] symbols;
+    private final Set<Namespace> symbolPaths;
     private final Map<Namespace, Module> modules;
+    private final Map<Namespace, DeferredBody> deferredBodies;
+    // results of 'allowedPathExpansions', cleared when a symbol is added
+    private final Map<Resolution, List<Namespace>> resolutions;
 
     public Symbols() {
-        this.symbols = new HashMap<>();
+        // grown as needed, since paths of other compilations may exist
+        this.symbols = new Symbol[0];
+        this.symbolPaths = new HashSet<>();
         this.modules = new HashMap<>();
+        this.deferredBodies = new HashMap<>();
+        this.resolutions = new HashMap<>();
     }
 
     public void add(Namespace path, Symbol symbol) {
-        this.symbols.put(path, symbol);
+        if(path.id() >= this.symbols.length) {
+            this.symbols = Arrays.copyOf(
+                this.symbols, Math.max(path.id() + 1, this.symbols.length * 2)
+            );
+        }
+        this.symbols[path.id()] = symbol;
+        this.symbolPaths.add(path);
+        this.resolutions.clear();
     }
     
     public Optional<Error> addAll(List<AstNode> nodes) {
@@ -147,7 +175,8 @@ public class Symbols {
         }
         Namespace currentModule = null; // first node will overwrite this 
         List<Namespace> usages = new ArrayList<>();
-        usages.add(new Namespace(List.of("core", "*")));
+        usages.add(Namespace.of(List.of("core", "*")));
+        Namespace[] sharedUsages = null; // until the usages change
         for(AstNode node: nodes) {
             switch(node.type) {
                 case MODULE_DECLARATION: {
@@ -174,7 +203,8 @@ public class Symbols {
                         data.path().elements()
                     );
                     usageSegments.add("*");
-                    usages.add(new Namespace(usageSegments));
+                    usages.add(Namespace.of(usageSegments));
+                    sharedUsages = null;
                 } break;
                 case PROCEDURE: {
                     AstNode.Procedure data = node.getValue();
@@ -182,29 +212,38 @@ public class Symbols {
                         currentModule.elements()
                     );
                     fullPath.add(data.name());
-                    Namespace finalPath = new Namespace(fullPath);
-                    if(this.symbols.containsKey(finalPath)) {
+                    Namespace finalPath = Namespace.of(fullPath);
+                    if(sharedUsages == null) {
+                        sharedUsages = usages.toArray(Namespace[]::new);
+                    }
+                    if(this.get(finalPath).isPresent()) {
                         return Optional.of(Symbols.duplicateSymbolError(
-                            finalPath, node.source, this.symbols.get(finalPath)
+                            finalPath, node.source, this.get(finalPath).get()
                         ));
                     }
-                    this.symbols.put(
+                    this.add(
                         finalPath,
                         new Symbol(
                             Symbol.Type.PROCEDURE, data.isPublic(), 
-                            node.source, usages.toArray(Namespace[]::new),
+                            node.source, sharedUsages,
                             new Symbol.Procedure(
                                 data.argumentNames(),
                                 Optional.empty(),
                                 Optional.empty(),
                                 Optional.empty(),
                                 Optional.of(data.body()),
+                                Optional.empty(),
                                 Optional.empty(), Optional.empty()
                             ),
                             Optional.empty(),
                             data.docComment()
                         )
                     );
+                    if(data.deferredBody().isPresent()) {
+                        this.deferredBodies.put(
+                            finalPath, data.deferredBody().get()
+                        );
+                    }
                 } break;
                 case VARIABLE: {
                     AstNode.Variable data = node.getValue();
@@ -212,20 +251,24 @@ public class Symbols {
                         currentModule.elements()
                     );
                     fullPath.add(data.name());
-                    Namespace finalPath = new Namespace(fullPath);
-                    if(this.symbols.containsKey(finalPath)) {
+                    Namespace finalPath = Namespace.of(fullPath);
+                    if(sharedUsages == null) {
+                        sharedUsages = usages.toArray(Namespace[]::new);
+                    }
+                    if(this.get(finalPath).isPresent()) {
                         return Optional.of(Symbols.duplicateSymbolError(
-                            finalPath, node.source, this.symbols.get(finalPath)
+                            finalPath, node.source, this.get(finalPath).get()
                         ));
                     }
-                    this.symbols.put(
+                    this.add(
                         finalPath,
                         new Symbol(
                             Symbol.Type.VARIABLE, data.isPublic(), 
-                            node.source, usages.toArray(Namespace[]::new),
+                            node.source, sharedUsages,
                             new Symbol.Variable(
                                 Optional.empty(),
                                 data.value(),
+                                Optional.empty(),
                                 Optional.empty()
                             ),
                             Optional.empty(),
@@ -236,6 +279,7 @@ public class Symbols {
                 case USE: {
                     AstNode.Usages data = node.getValue();
                     usages.addAll(data.paths());
+                    sharedUsages = null;
                 } break;
                 default:
                     throw new RuntimeException("invalid top-level statement!");
@@ -252,8 +296,24 @@ public class Symbols {
         return accessedSymbol.isPublic || fileMatches;
     }   
 
+    // The returned list may not be modified.
     public List<Namespace> allowedPathExpansions(
         Namespace path, Symbol inSymbol, Source accessSource
+    ) {
+        Resolution resolution = new Resolution(
+            inSymbol.usages, path, accessSource.file()
+        );
+        List<Namespace> cached = this.resolutions.get(resolution);
+        if(cached != null) { return cached; }
+        List<Namespace> expansions = Collections.unmodifiableList(
+            this.findPathExpansions(path, inSymbol, accessSource)
+        );
+        this.resolutions.put(resolution, expansions);
+        return expansions;
+    }
+
+    private List<Namespace> findPathExpansions(
+        Namespace path, Symbol inSymbol, Source accessSource
     ) {
         String firstPathElement = path.elements().get(0);
         Set<Namespace> validExpansions = new HashSet<>();
@@ -268,23 +328,36 @@ public class Symbols {
             fullPathElements.addAll(usage.elements());
             fullPathElements.remove(fullPathElements.size() - 1);
             fullPathElements.addAll(path.elements());
-            Namespace fullPath = new Namespace(fullPathElements);
-            Optional<Symbols.Symbol> accessedSymbol = this.get(fullPath);
+            // a path that doesn't exist yet can't have a symbol
+            Optional<Namespace> fullPath = Namespace.find(fullPathElements);
+            if(fullPath.isEmpty()) { continue; }
+            Optional<Symbols.Symbol> accessedSymbol = this.get(fullPath.get());
             if(accessedSymbol.isEmpty()) { continue; }
             if(!this.accessAllowed(accessedSymbol.get(), accessSource)) {
                 continue;
             }
-            validExpansions.add(fullPath);
+            validExpansions.add(fullPath.get());
         }
         return new ArrayList<>(validExpansions);
     }
 
     public Optional<Symbol> get(Namespace path) {
-        return Optional.ofNullable(this.symbols.get(path));
+        if(path.id() >= this.symbols.length) { return Optional.empty(); }
+        return Optional.ofNullable(this.symbols[path.id()]);
+    }
+
+    // Parses the body of the procedure at the given path if it has been
+    // deferred. The parsed nodes are added to the existing body list.
+    public void parseBody(
+        Namespace path
+    ) throws DeferredBody.SyntaxErrorException {
+        DeferredBody body = this.deferredBodies.get(path);
+        if(body == null) { return; }
+        body.parse();
     }
 
     public Set<Namespace> allSymbolPaths() {
-        return this.symbols.keySet();
+        return this.symbolPaths;
     }
 
     public Optional<Module> getDeclaredModule(Namespace path) {
@@ -0,0 +1,256 @@
+
+package typesafeschwalbe.gerac.compiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Timings {
+
+    public static final String PARSING = "parsing";
+    public static final String SYMBOL_REGISTRATION = "symbol registration";
+    public static final String TYPE_CHECKING = "type checking";
+    public static final String SYMBOL_INFO = "symbol info generation";
+    public static final String LOWERING = "lowering";
+    public static final String CODE_GENERATION = "code generation";
+
+    private static class Phase {
+        private long wallNanos = 0;
+        private long cpuNanos = 0;
+        private long allocatedBytes = 0;
+    }
+
+    // A span may measure the elapsed wall time, the work done by the current
+    // thread (CPU time and allocations) or both. Phases that are split across
+    // multiple threads measure the wall time once on the calling thread
+    // and the work on each participating thread.
+    public static class Span {
+        private final String phase;
+        private final boolean measuresWall;
+        private final boolean measuresWork;
+        private final long wallStart;
+        private final long cpuStart;
+        private final long allocStart;
+
+        private Span(
+            String phase, boolean measuresWall, boolean measuresWork,
+            long wallStart, long cpuStart, long allocStart
+        ) {
+            this.phase = phase;
+            this.measuresWall = measuresWall;
+            this.measuresWork = measuresWork;
+            this.wallStart = wallStart;
+            this.cpuStart = cpuStart;
+            this.allocStart = allocStart;
+        }
+    }
+
+    private static final Timings DISABLED = new Timings(false);
+
+    public static Timings disabled() {
+        return DISABLED;
+    }
+
+    private final boolean enabled;
+    private final ThreadMXBean threads;
+    private final Map<String, Phase> phases;
+    private final Map<String, Long> counts;
+
+    private Timings(boolean enabled) {
+        this.enabled = enabled;
+        this.threads = ManagementFactory.getThreadMXBean();
+        this.phases = new LinkedHashMap<>();
+        this.counts = new LinkedHashMap<>();
+    }
+
+    public Timings() {
+        this(true);
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public Span begin(String phase) {
+        return this.begin(phase, true, true);
+    }
+
+    public Span beginParallel(String phase) {
+        return this.begin(phase, true, false);
+    }
+
+    public Span beginTask(String phase) {
+        return this.begin(phase, false, true);
+    }
+
+    private Span begin(
+        String phase, boolean measuresWall, boolean measuresWork
+    ) {
+        if(!this.enabled) { return null; }
+        return new Span(
+            phase, measuresWall, measuresWork,
+            System.nanoTime(), this.threadCpuTime(), this.threadAllocatedBytes()
+        );
+    }
+
+    public void end(Span span) {
+        if(!this.enabled) { return; }
+        long wallEnd = System.nanoTime();
+        long cpuEnd = this.threadCpuTime();
+        long allocEnd = this.threadAllocatedBytes();
+        synchronized(this) {
+            Phase phase = this.phases.computeIfAbsent(
+                span.phase, p -> new Phase()
+            );
+            if(span.measuresWall) {
+                phase.wallNanos += wallEnd - span.wallStart;
+            }
+            if(span.measuresWork) {
+                phase.cpuNanos += cpuEnd - span.cpuStart;
+                phase.allocatedBytes += allocEnd - span.allocStart;
+            }
+        }
+    }
+
+    public synchronized void count(String name, long value) {
+        if(!this.enabled) { return; }
+        this.counts.put(name, value);
+    }
+
+    private long threadCpuTime() {
+        if(!this.threads.isCurrentThreadCpuTimeSupported()) { return 0; }
+        return this.threads.getCurrentThreadCpuTime();
+    }
+
+    private long threadAllocatedBytes() {
+        if(this.threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) this.threads)
+                .getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    public synchronized String render() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(
+            "%-24s %12s %12s %14s\n",
+            "phase", "wall (ms)", "cpu (ms)", "alloc (KiB)"
+        ));
+        long totalWall = 0;
+        long totalCpu = 0;
+        long totalAlloc = 0;
+        for(String name: this.phases.keySet()) {
+            Phase phase = this.phases.get(name);
+            out.append(String.format(
+                "%-24s %12.3f %12.3f %14d\n",
+                name, phase.wallNanos / 1e6, phase.cpuNanos / 1e6,
+                phase.allocatedBytes / 1024
+            ));
+            totalWall += phase.wallNanos;
+            totalCpu += phase.cpuNanos;
+            totalAlloc += phase.allocatedBytes;
+        }
+        out.append(String.format(
+            "%-24s %12.3f %12.3f %14d\n",
+            "total", totalWall / 1e6, totalCpu / 1e6, totalAlloc / 1024
+        ));
+        for(String name: this.counts.keySet()) {
+            out.append(String.format(
+                "%-24s %12d\n", name, this.counts.get(name)
+            ));
+        }
+        return out.toString();
+    }
+
+    // Renders multiple timings (e.g. of different compilations),
+    // each under its label.
+    public static String render(Map<String, Timings> labeled) {
+        StringBuilder out = new StringBuilder();
+        for(String label: labeled.keySet()) {
+            out.append(label);
+            out.append(":\n");
+            out.append(labeled.get(label).render());
+        }
+        return out.toString();
+    }
+
+    public synchronized String renderJson() {
+        StringBuilder out = new StringBuilder();
+        this.renderJson(out);
+        out.append("\n");
+        return out.toString();
+    }
+
+    public static String renderJson(Map<String, Timings> labeled) {
+        StringBuilder out = new StringBuilder();
+        out.append("{\"reports\":[");
+        boolean hadReport = false;
+        for(String label: labeled.keySet()) {
+            if(hadReport) { out.append(","); }
+            hadReport = true;
+            out.append("{\"label\":");
+            Timings.renderJsonString(label, out);
+            out.append(",\"timings\":");
+            labeled.get(label).renderJson(out);
+            out.append("}");
+        }
+        out.append("]}\n");
+        return out.toString();
+    }
+
+    private static void renderJsonString(String content, StringBuilder out) {
+        out.append("\"");
+        for(int charI = 0; charI < content.length(); charI += 1) {
+            char c = content.charAt(charI);
+            switch(c) {
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                case '\"': out.append("\\\""); break;
+                default: {
+                    if(c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append("\"");
+    }
+
+    private synchronized void renderJson(StringBuilder out) {
+        out.append("{\"phases\":[");
+        List<String> phaseNames = new ArrayList<>(this.phases.keySet());
+        for(int phaseI = 0; phaseI < phaseNames.size(); phaseI += 1) {
+            if(phaseI > 0) { out.append(","); }
+            String name = phaseNames.get(phaseI);
+            Phase phase = this.phases.get(name);
+            out.append("{\"name\":\"");
+            out.append(name);
+            out.append("\",\"wallNanos\":");
+            out.append(phase.wallNanos);
+            out.append(",\"cpuNanos\":");
+            out.append(phase.cpuNanos);
+            out.append(",\"allocatedBytes\":");
+            out.append(phase.allocatedBytes);
+            out.append("}");
+        }
+        out.append("],\"counts\":{");
+        boolean hadCount = false;
+        for(String name: this.counts.keySet()) {
+            if(hadCount) { out.append(","); }
+            hadCount = true;
+            out.append("\"");
+            out.append(name);
+            out.append("\":");
+            out.append(this.counts.get(name));
+        }
+        out.append("}}");
+    }
+
+}
@@ -0,0 +1,151 @@
+
+package typesafeschwalbe.gerac.compiler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Collects spans in the Chrome trace event format, which can be viewed
+// using 'chrome://tracing' or Perfetto.
+public class Trace {
+
+    public static final String PARSING = "parsing";
+    public static final String SOLVING = "solving";
+    public static final String OVERLOAD_RESOLUTION = "overload resolution";
+    public static final String LOWERING = "lowering";
+    public static final String CODE_GENERATION = "code generation";
+
+    public static class Span {
+        private final String name;
+        private final String category;
+        private final long threadId;
+        private final long startNanos;
+        private final Map<String, String> args;
+
+        private Span(
+            String name, String category, long threadId, long startNanos
+        ) {
+            this.name = name;
+            this.category = category;
+            this.threadId = threadId;
+            this.startNanos = startNanos;
+            this.args = new LinkedHashMap<>();
+        }
+
+        public Span arg(String name, Object value) {
+            if(this != DISABLED_SPAN) {
+                this.args.put(name, String.valueOf(value));
+            }
+            return this;
+        }
+    }
+
+    private static record Event(Span span, long endNanos) {}
+
+    private static final Span DISABLED_SPAN = new Span(null, null, 0, 0);
+    private static final Trace DISABLED = new Trace(false);
+
+    public static Trace disabled() {
+        return DISABLED;
+    }
+
+    private final boolean enabled;
+    private final long originNanos;
+    private final List<Event> events;
+
+    private Trace(boolean enabled) {
+        this.enabled = enabled;
+        this.originNanos = System.nanoTime();
+        this.events = new ArrayList<>();
+    }
+
+    public Trace() {
+        this(true);
+    }
+
+    public Span begin(String category, String name) {
+        if(!this.enabled) { return DISABLED_SPAN; }
+        return new Span(
+            name, category, Thread.currentThread().getId(), System.nanoTime()
+        );
+    }
+
+    public void end(Span span) {
+        if(span == DISABLED_SPAN) { return; }
+        long endNanos = System.nanoTime();
+        synchronized(this) {
+            this.events.add(new Event(span, endNanos));
+        }
+    }
+
+    public synchronized void write(Appendable out) throws IOException {
+        out.append("{\"traceEvents\":[\n");
+        for(int eventI = 0; eventI < this.events.size(); eventI += 1) {
+            Event event = this.events.get(eventI);
+            if(eventI > 0) { out.append(",\n"); }
+            out.append("{\"name\":");
+            Trace.writeString(event.span.name, out);
+            out.append(",\"cat\":");
+            Trace.writeString(event.span.category, out);
+            out.append(",\"ph\":\"X\",\"pid\":1,\"tid\":");
+            out.append(String.valueOf(event.span.threadId));
+            out.append(",\"ts\":");
+            Trace.writeMicros(event.span.startNanos - this.originNanos, out);
+            out.append(",\"dur\":");
+            Trace.writeMicros(event.endNanos - event.span.startNanos, out);
+            if(event.span.args.size() > 0) {
+                out.append(",\"args\":{");
+                boolean hadArg = false;
+                for(String argName: event.span.args.keySet()) {
+                    if(hadArg) { out.append(","); }
+                    hadArg = true;
+                    Trace.writeString(argName, out);
+                    out.append(":");
+                    Trace.writeString(event.span.args.get(argName), out);
+                }
+                out.append("}");
+            }
+            out.append("}");
+        }
+        out.append("\n]}\n");
+    }
+
+    private static void writeMicros(
+        long nanos, Appendable out
+    ) throws IOException {
+        out.append(String.valueOf(nanos / 1000));
+        out.append(".");
+        String fraction = String.valueOf(nanos % 1000);
+        for(int padI = fraction.length(); padI < 3; padI += 1) {
+            out.append("0");
+        }
+        out.append(fraction);
+    }
+
+    private static void writeString(
+        String content, Appendable out
+    ) throws IOException {
+        out.append("\"");
+        for(int charI = 0; charI < content.length(); charI += 1) {
+            char c = content.charAt(charI);
+            switch(c) {
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                case '\"': out.append("\\\""); break;
+                default: {
+                    if(c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append("\"");
+    }
+
+}
@@ -1,90 +1,175 @@
 
 package typesafeschwalbe.gerac.compiler;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Objects;
 
 public class UnionFind<T> {
 
-    private static class Entry<T> {
-        private T value;
-        private int parent;
+    private static final int INITIAL_CAPACITY = 64;
+
+    // The state to go back to when rolling back changes.
+    public static record Mark(int trailLength, int size) {}
+
+    // 'parents[idx] == idx' for all roots
+    private int[] parents;
+    // upper bounds for the heights of the trees below each root
+    private int[] ranks;
+    // only the values of roots are used
+    private Object[] values;
+    private int size;
+    // while there are active marks, the previous state of each changed
+    // entry is recorded so that the changes can be undone
+    private int activeMarks;
+    private int[] trailIndices;
+    private int[] trailParents;
+    private int[] trailRanks;
+    private Object[] trailValues;
+    private int trailLength;
 
-        private Entry(T value) {
-            this.value = value;
-            this.parent = -1;
+    public UnionFind() {
+        this.parents = new int[INITIAL_CAPACITY];
+        this.ranks = new int[INITIAL_CAPACITY];
+        this.values = new Object[INITIAL_CAPACITY];
+        this.size = 0;
+        this.activeMarks = 0;
+        this.trailIndices = new int[INITIAL_CAPACITY];
+        this.trailParents = new int[INITIAL_CAPACITY];
+        this.trailRanks = new int[INITIAL_CAPACITY];
+        this.trailValues = new Object[INITIAL_CAPACITY];
+        this.trailLength = 0;
+    }
+
+    private void record(int idx) {
+        if(this.activeMarks == 0) { return; }
+        if(this.trailLength == this.trailIndices.length) {
+            int capacity = this.trailIndices.length * 2;
+            this.trailIndices = Arrays.copyOf(this.trailIndices, capacity);
+            this.trailParents = Arrays.copyOf(this.trailParents, capacity);
+            this.trailRanks = Arrays.copyOf(this.trailRanks, capacity);
+            this.trailValues = Arrays.copyOf(this.trailValues, capacity);
         }
+        this.trailIndices[this.trailLength] = idx;
+        this.trailParents[this.trailLength] = this.parents[idx];
+        this.trailRanks[this.trailLength] = this.ranks[idx];
+        this.trailValues[this.trailLength] = this.values[idx];
+        this.trailLength += 1;
     }
 
-    private final List<Entry<T>> values;
+    // Starts recording changes. They are either kept by calling 'commit'
+    // or undone by calling 'rollback' with the returned mark. Marks may
+    // be nested, but need to be committed or rolled back in reverse order.
+    public Mark mark() {
+        this.activeMarks += 1;
+        return new Mark(this.trailLength, this.size);
+    }
 
-    public UnionFind() {
-        this.values = new ArrayList<>();
+    public void commit(Mark mark) {
+        this.activeMarks -= 1;
+        // an outer mark may still need to undo the changes
+        if(this.activeMarks > 0) { return; }
+        Arrays.fill(this.trailValues, 0, this.trailLength, null);
+        this.trailLength = 0;
     }
 
-    private void compressPath(int start, int root) {
-        int currentIdx = start;
-        while(true) {
-            Entry<T> current = this.values.get(currentIdx);
-            if(current.parent == -1) {
-                break;
-            }
-            currentIdx = current.parent;
-            current.parent = root;
+    public void rollback(Mark mark) {
+        while(this.trailLength > mark.trailLength) {
+            this.trailLength -= 1;
+            int idx = this.trailIndices[this.trailLength];
+            this.parents[idx] = this.trailParents[this.trailLength];
+            this.ranks[idx] = this.trailRanks[this.trailLength];
+            this.values[idx] = this.trailValues[this.trailLength];
+            this.trailValues[this.trailLength] = null;
         }
+        Arrays.fill(this.values, mark.size, this.size, null);
+        this.size = mark.size;
+        this.activeMarks -= 1;
     }
 
     public int find(int idx) {
+        Objects.checkIndex(idx, this.size);
         int currentIdx = idx;
-        while(true) {
-            Entry<T> current = this.values.get(currentIdx);
-            if(current.parent == -1) {
-                break;
+        if(this.activeMarks > 0) {
+            // the paths are left as-is so that they don't need to be
+            // recorded, which union by rank keeps short enough anyway
+            while(this.parents[currentIdx] != currentIdx) {
+                currentIdx = this.parents[currentIdx];
             }
-            currentIdx = current.parent;
+            return currentIdx;
+        }
+        // path halving - every node on the path is made to point to its
+        // grandparent, which roughly halves the path on every call
+        while(this.parents[currentIdx] != currentIdx) {
+            int grandparent = this.parents[this.parents[currentIdx]];
+            this.parents[currentIdx] = grandparent;
+            currentIdx = grandparent;
         }
-        this.compressPath(idx, currentIdx);
         return currentIdx;
     }
 
     public int add(T value) {
-        int idx = this.values.size();
-        this.values.add(new Entry<T>(value));
+        if(this.size == this.parents.length) {
+            int capacity = this.parents.length * 2;
+            this.parents = Arrays.copyOf(this.parents, capacity);
+            this.ranks = Arrays.copyOf(this.ranks, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+        int idx = this.size;
+        this.parents[idx] = idx;
+        this.ranks[idx] = 0;
+        this.values[idx] = value;
+        this.size += 1;
         return idx;
     }
 
+    @SuppressWarnings("unchecked")
     public T get(int idx) {
-        Entry<T> entry = this.values.get(this.find(idx));
-        return entry.value;
+        return (T) this.values[this.find(idx)];
     }
 
     public void set(int idx, T value) {
-        Entry<T> entry = this.values.get(this.find(idx));
-        entry.value = value;
+        int root = this.find(idx);
+        this.record(root);
+        this.values[root] = value;
     }
 
+    // The merged set keeps the value of the set of 'idxA'.
+    // Which of the two roots becomes the new root is decided by rank.
     public void union(int idxA, int idxB) {
         int rootA = this.find(idxA);
         int rootB = this.find(idxB);
-        if(rootA != rootB) {
-            this.values.get(rootB).parent = rootA;
+        if(rootA == rootB) { return; }
+        Object value = this.values[rootA];
+        int root = rootA;
+        int child = rootB;
+        if(this.ranks[rootA] < this.ranks[rootB]) {
+            root = rootB;
+            child = rootA;
+        }
+        this.record(root);
+        this.record(child);
+        if(this.ranks[root] == this.ranks[child]) {
+            this.ranks[root] += 1;
         }
+        this.parents[child] = root;
+        this.values[root] = value;
+        this.values[child] = null;
     }
 
     public boolean isRoot(int idx) {
-        Entry<T> entry = this.values.get(this.find(idx));
-        return entry.parent == -1;
+        int root = this.find(idx);
+        return this.parents[root] == root;
     }
 
     @Override
     public String toString() {
         StringBuilder r = new StringBuilder();
         r.append("[");
-        for(int i = 0; i < this.values.size(); i += 1) {
+        for(int i = 0; i < this.size; i += 1) {
             if(i > 0) { r.append(", "); }
             int root = this.find(i);
             if(root == i) {
-                r.append(this.values.get(i).value.toString());
+                r.append(this.values[i].toString());
             } else {
                 r.append(">");
                 r.append(root);
@@ -1,6 +1,7 @@
 
 package typesafeschwalbe.gerac.compiler.backend;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -10,6 +11,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import typesafeschwalbe.gerac.compiler.Symbols;
+import typesafeschwalbe.gerac.compiler.Trace;
 import typesafeschwalbe.gerac.compiler.frontend.Namespace;
 import typesafeschwalbe.gerac.compiler.types.DataType;
 import typesafeschwalbe.gerac.compiler.types.TypeContext;
@@ -387,7 +389,7 @@ public class CCodeGen implements CodeGen {
 
     private void addBuiltins() {
         this.builtIns.put(
-            new Namespace(List.of("core", "addr_eq")),
+            Namespace.of(List.of("core", "addr_eq")),
             (tctx, args, argt, dest, out) -> {
                 out.append("{\n");
                 this.emitVarSync("begin_read", args.get(0), out);
@@ -410,7 +412,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "tag_eq")),
+            Namespace.of(List.of("core", "tag_eq")),
             (tctx, args, argt, dest, out) -> {
                 out.append("{\n");
                 this.emitVarSync("begin_read", args.get(0), out);
@@ -444,7 +446,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "length")),
+            Namespace.of(List.of("core", "length")),
             (tctx, args, argt, dest, out) -> {
                 this.emitVarSync("begin_read", args.get(0), out);
                 this.emitVarSync("begin_write", dest, out);
@@ -457,7 +459,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "exhaust")),
+            Namespace.of(List.of("core", "exhaust")),
             (tctx, args, argt, dest, out) -> {
                 out.append("{\n");
                 this.emitVarSync("begin_read", args.get(0), out);
@@ -481,7 +483,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "exhaust")),
+            Namespace.of(List.of("core", "exhaust")),
             (tctx, args, argt, dest, out) -> {
                 out.append("{\n");
                 this.emitVarSync("begin_read", args.get(0), out);
@@ -505,7 +507,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "panic")),
+            Namespace.of(List.of("core", "panic")),
             (tctx, args, argt, dest, out) -> {
                 out.append("{\n");
                 this.emitVarSync("begin_read", args.get(0), out);
@@ -518,7 +520,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "as_str")),
+            Namespace.of(List.of("core", "as_str")),
             (tctx, args, argt, dest, out) -> {
                 out.append("{\n");
                 if(this.shouldEmitType(argt.get(0))) {
@@ -646,7 +648,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "as_int")),
+            Namespace.of(List.of("core", "as_int")),
             (tctx, args, argt, dest, out) -> {
                 if(this.shouldEmitType(argt.get(0))) {
                     out.append("{\n");
@@ -671,7 +673,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "as_flt")),
+            Namespace.of(List.of("core", "as_flt")),
             (tctx, args, argt, dest, out) -> {
                 if(this.shouldEmitType(argt.get(0))) {
                     out.append("{\n");
@@ -696,7 +698,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "substring")),
+            Namespace.of(List.of("core", "substring")),
             (tctx, args, argt, dest, out) -> {
                 out.append("{\n");
                 this.emitVarSync("begin_read", args.get(0), out);
@@ -726,7 +728,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "concat")),
+            Namespace.of(List.of("core", "concat")),
             (tctx, args, argt, dest, out) -> {
                 out.append("{\n");
                 this.emitVarSync("begin_read", args.get(0), out);
@@ -748,7 +750,7 @@ public class CCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "hash")),
+            Namespace.of(List.of("core", "hash")),
             (tctx, args, argt, dest, out) -> {
                 out.append("{\n");
                 this.emitVarSync("begin_read", args.get(0), out);
@@ -877,11 +879,14 @@ public class CCodeGen implements CodeGen {
     private Set<Integer> usedTypes;
     private StringBuilder closureBodies;
     private long closureBodyCount;
+    private final Trace trace;
 
     public CCodeGen(
         Map<String, String> sourceFiles, Symbols symbols, 
-        TypeContext typeContext, Ir.StaticValues staticValues
+        TypeContext typeContext, Ir.StaticValues staticValues,
+        Trace trace
     ) {
+        this.trace = trace;
         this.sourceFiles = sourceFiles;
         this.symbols = symbols;
         this.typeContext = typeContext;
@@ -918,7 +923,9 @@ public class CCodeGen implements CodeGen {
 
 
     @Override
-    public String generate(Namespace mainPath) {
+    public void generate(
+        Namespace mainPath, Appendable output
+    ) throws IOException {
         this.nextUnionTagNumber = 0;
         this.unionVariantTagNumbers = new HashMap<>();
         this.usedTypes = new HashSet<>();
@@ -979,21 +986,26 @@ public class CCodeGen implements CodeGen {
         this.emitSymbolDecls(symDecls);
         StringBuilder symImpls = new StringBuilder();
         this.emitSymbolImpls(symImpls);
+        // types are only known after all symbols have been emitted,
+        // but need to be declared first - each of the sections is written
+        // and released as soon as its position in the output is reached
         StringBuilder types = new StringBuilder();
         out.append("\n");
         this.emitTypeDeclarations(types, out);
         out.append("\n");
-        out.append(types);
-        out.append("\n");
+        CodeGen.flush(out, output);
+        CodeGen.flush(types, output);
+        output.append("\n");
         this.emitValueDeclarations(out);
         out.append("\n");
-        out.append(symDecls);
-        out.append("\n");
-        out.append(this.closureBodies);
-        out.append("\n");
-        out.append(symImpls);
-        out.append("\n");
-        out.append(valuesInit);
+        CodeGen.flush(out, output);
+        CodeGen.flush(symDecls, output);
+        output.append("\n");
+        CodeGen.flush(this.closureBodies, output);
+        output.append("\n");
+        CodeGen.flush(symImpls, output);
+        output.append("\n");
+        CodeGen.flush(valuesInit, output);
         out.append("\n");
         out.append("int main(int argc, char** argv) {\n");
         out.append("    gera___set_args(argc, argv);\n");
@@ -1003,7 +1015,7 @@ public class CCodeGen implements CodeGen {
         out.append("();\n");
         out.append("    return 0;\n");
         out.append("}\n");
-        return out.toString();
+        CodeGen.flush(out, output);
     }
 
 
@@ -1749,6 +1761,7 @@ public class CCodeGen implements CodeGen {
         List<TypeVariable> argTypes, 
         List<Ir.Instr> body, Ir.Context context, StringBuilder out
     ) {
+        Trace.Span span = this.trace.begin(Trace.CODE_GENERATION, name);
         this.enterContext(context);
         this.emitType(retType, out);
         out.append(" ");
@@ -1856,6 +1869,7 @@ public class CCodeGen implements CodeGen {
         }
         out.append("}\n");
         this.exitContext();
+        this.trace.end(span);
     }
     
 
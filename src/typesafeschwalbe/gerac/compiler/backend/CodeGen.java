@@ -1,9 +1,11 @@
 
 package typesafeschwalbe.gerac.compiler.backend;
 
+import java.io.IOException;
 import java.util.Map;
 
 import typesafeschwalbe.gerac.compiler.Symbols;
+import typesafeschwalbe.gerac.compiler.Trace;
 import typesafeschwalbe.gerac.compiler.frontend.Namespace;
 import typesafeschwalbe.gerac.compiler.types.TypeContext;
 
@@ -13,10 +15,29 @@ public interface CodeGen {
     public static interface Constructor {
         CodeGen create(
             Map<String, String> sourceFiles, Symbols symbols, 
-            TypeContext typeContext, Ir.StaticValues staticValues
+            TypeContext typeContext, Ir.StaticValues staticValues,
+            Trace trace
         );
     }
 
-    String generate(Namespace mainPath);
+    void generate(Namespace mainPath, Appendable out) throws IOException;
+
+    static final int WRITE_CHUNK_SIZE = 8192;
+
+    // Writes the contents of the given buffer and clears it.
+    // This is done in chunks so that writers (which copy everything given
+    // to them into a new string) never duplicate the entire buffer.
+    static void flush(
+        StringBuilder buffer, Appendable out
+    ) throws IOException {
+        int length = buffer.length();
+        for(int start = 0; start < length; start += WRITE_CHUNK_SIZE) {
+            out.append(
+                buffer, start, Math.min(start + WRITE_CHUNK_SIZE, length)
+            );
+        }
+        buffer.setLength(0);
+        buffer.trimToSize();
+    }
 
 }
@@ -17,6 +17,7 @@ import typesafeschwalbe.gerac.compiler.Source;
 import typesafeschwalbe.gerac.compiler.Symbols;
 import typesafeschwalbe.gerac.compiler.frontend.AstNode;
 import typesafeschwalbe.gerac.compiler.frontend.Namespace;
+import typesafeschwalbe.gerac.compiler.types.NodeAnnotations;
 
 public class Interpreter {
 
@@ -48,7 +49,7 @@ public class Interpreter {
 
     private void addBuiltins() {
         this.builtIns.put(
-            new Namespace(List.of("core", "addr_eq")),
+            Namespace.of(List.of("core", "addr_eq")),
             (args, src) -> {
                 if(args.get(0) instanceof Value.Arr) {
                     return new Value.Bool(
@@ -64,14 +65,14 @@ public class Interpreter {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "tag_eq")),
+            Namespace.of(List.of("core", "tag_eq")),
             (args, src) -> new Value.Bool(
                 args.get(0).<Value.Union>getValue().variant
                     .equals(args.get(1).<Value.Union>getValue().variant)
             )
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "length")),
+            Namespace.of(List.of("core", "length")),
             (args, src) -> {
                 if(args.get(0) instanceof Value.Arr) {
                     return new Value.Int(
@@ -85,7 +86,7 @@ public class Interpreter {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "exhaust")),
+            Namespace.of(List.of("core", "exhaust")),
             (args, src) -> {
                 String variant;
                 do {
@@ -99,14 +100,14 @@ public class Interpreter {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "panic")),
+            Namespace.of(List.of("core", "panic")),
             (args, src) -> {
                 this.panic(args.get(0).<Value.Str>getValue().value, src);
                 return Value.UNIT;
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "as_str")),
+            Namespace.of(List.of("core", "as_str")),
             (args, src) -> {
                 if(args.get(0) instanceof Value.Unit) {
                     return new Value.Str("unit");
@@ -142,7 +143,7 @@ public class Interpreter {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "as_int")),
+            Namespace.of(List.of("core", "as_int")),
             (args, src) -> {
                 if(args.get(0) instanceof Value.Float) {
                     return new Value.Int(
@@ -154,7 +155,7 @@ public class Interpreter {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "as_flt")),
+            Namespace.of(List.of("core", "as_flt")),
             (args, src) -> {
                 if(args.get(0) instanceof Value.Int) {
                     return new Value.Float(
@@ -166,7 +167,7 @@ public class Interpreter {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "substring")),
+            Namespace.of(List.of("core", "substring")),
             (args, callSource) -> {
                 String src = args.get(0).<Value.Str>getValue().value;
                 long srcLength = src.codePoints().count();
@@ -211,14 +212,14 @@ public class Interpreter {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "concat")),
+            Namespace.of(List.of("core", "concat")),
             (args, src) -> new Value.Str(
                 args.get(0).<Value.Str>getValue().value
                     + args.get(1).<Value.Str>getValue().value
             )
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "hash")),
+            Namespace.of(List.of("core", "hash")),
             (args, src) -> new Value.Int(
                 args.get(0).hashCode()
             )
@@ -228,6 +229,7 @@ public class Interpreter {
     private final Map<String, String> sourceFiles;
     private final Symbols symbols;
     private List<Map<String, Optional<Value>>> stack;
+    private NodeAnnotations annotations;
     private final List<CallTraceEntry> callTrace;
     private final Map<Namespace, BuiltInProcedure> builtIns;
 
@@ -305,7 +307,7 @@ public class Interpreter {
         long index, int size, Source source
     ) throws ErrorException {
         this.enterCall(
-            new Namespace(List.of("<index>")), source
+            Namespace.of(List.of("<index>")), source
         );
         this.panic(
             "the index " + index + " is out of bounds"
@@ -318,7 +320,7 @@ public class Interpreter {
         long divisor, Source source
     ) throws ErrorException {
         this.enterCall(
-            new Namespace(List.of("<division>")), source
+            Namespace.of(List.of("<division>")), source
         );
         this.panic(
             "integer division by zero",
@@ -330,10 +332,12 @@ public class Interpreter {
         Value.Closure called, List<Value> arguments, Source source
     ) throws ErrorException {
         this.enterCall(
-            new Namespace(List.of("<closure>")), source
+            Namespace.of(List.of("<closure>")), source
         );
         List<Map<String, Optional<Value>>> prevStack = this.stack;
+        NodeAnnotations prevAnnotations = this.annotations;
         this.stack = new ArrayList<>(called.environment);
+        this.annotations = called.annotations;
         this.enterFrame();
         for(
             int argI = 0; 
@@ -354,6 +358,7 @@ public class Interpreter {
         this.exitFrame();
         this.exitCall();
         this.stack = prevStack;
+        this.annotations = prevAnnotations;
         return returnedValue;
     }
 
@@ -365,27 +370,34 @@ public class Interpreter {
         }
     }
 
-    public Value evaluateStaticNode(AstNode node) throws ErrorException {
+    public Value evaluateStaticNode(
+        AstNode node, NodeAnnotations annotations
+    ) throws ErrorException {
+        NodeAnnotations prevAnnotations = this.annotations;
+        this.annotations = annotations;
         try {
             return this.evaluateNode(node);
         } catch(ReturnException returned) {
             throw new RuntimeException("not allowed to return here!");
+        } finally {
+            this.annotations = prevAnnotations;
         }
     }
 
     private Value evaluateNode(
-        AstNode node
+        AstNode unresolved
     ) throws ErrorException, ReturnException {
+        AstNode node = this.annotations.resolved(unresolved);
         switch(node.type) {
             case CLOSURE: {
                 AstNode.Closure data = node.getValue();
                 return new Value.Closure(
-                    data.captures().get().get(),
+                    this.annotations.captures(data),
                     new ArrayList<>(this.stack),
                     data.argumentNames(),
-                    data.argumentTypes().get().get(),
-                    data.returnType().get().get(),
-                    data.body()
+                    this.annotations.argumentTypes(data),
+                    this.annotations.returnType(data),
+                    data.body(), this.annotations
                 );
             }
             case VARIABLE: {
@@ -529,11 +541,14 @@ public class Interpreter {
                     this.currentFrame().put(argName, Optional.of(argValue));
                 }
                 Value returnedValue = Value.UNIT;
+                NodeAnnotations prevAnnotations = this.annotations;
+                this.annotations = symbolData.annotations().get();
                 try {
                     this.evaluateBlock(symbolData.body().get());
                 } catch(ReturnException returned) {
                     returnedValue = returned.value;
                 }
+                this.annotations = prevAnnotations;
                 this.exitCall();
                 while(this.stack.size() > startingStackSize) {
                     this.exitFrame();
@@ -581,7 +596,7 @@ public class Interpreter {
                 Value.Int size = this.evaluateNode(data.right()).getValue();
                 if(size.value < 0) {
                     this.enterCall(
-                        new Namespace(List.of("<array-init>")), node.source
+                        Namespace.of(List.of("<array-init>")), node.source
                     );
                     this.panic(
                         "the value " + size.value
@@ -866,10 +881,14 @@ public class Interpreter {
                 if(symbolData.value().isPresent()) {
                     value = symbolData.value().get();
                 } else {
+                    NodeAnnotations prevAnnotations = this.annotations;
+                    this.annotations = symbolData.annotations().get();
                     value = this.evaluateNode(symbolData.valueNode().get());
+                    this.annotations = prevAnnotations;
                     symbol.get().setValue(new Symbols.Symbol.Variable(
                         symbolData.valueType(),
                         symbolData.valueNode(),
+                        symbolData.annotations(),
                         Optional.of(value)
                     ));
                 }
@@ -906,8 +925,9 @@ public class Interpreter {
     }
 
     private void evaluateAssignment(
-        AstNode node, Value value
+        AstNode unresolved, Value value
     ) throws ErrorException, ReturnException {
+        AstNode node = this.annotations.resolved(unresolved);
         switch(node.type) {
             case OBJECT_ACCESS: {
                 AstNode.ObjectAccess data = node.getValue();
@@ -1,6 +1,7 @@
 
 package typesafeschwalbe.gerac.compiler.backend;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -9,6 +10,7 @@ import java.util.Optional;
 
 import typesafeschwalbe.gerac.compiler.Source;
 import typesafeschwalbe.gerac.compiler.Symbols;
+import typesafeschwalbe.gerac.compiler.Trace;
 import typesafeschwalbe.gerac.compiler.frontend.Namespace;
 import typesafeschwalbe.gerac.compiler.types.DataType;
 import typesafeschwalbe.gerac.compiler.types.TypeContext;
@@ -139,7 +141,7 @@ public class JsCodeGen implements CodeGen {
 
     private void addBuiltins() {
         this.builtIns.put(
-            new Namespace(List.of("core", "addr_eq")),
+            Namespace.of(List.of("core", "addr_eq")),
             (tctx, args, argt, dest, out) -> {
                 this.emitVariable(dest, out);
                 out.append(" = ");
@@ -150,7 +152,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "tag_eq")),
+            Namespace.of(List.of("core", "tag_eq")),
             (tctx, args, argt, dest, out) -> {
                 this.emitVariable(dest, out);
                 out.append(" = ");
@@ -161,7 +163,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "length")),
+            Namespace.of(List.of("core", "length")),
             (tctx, args, argt, dest, out) -> {
                 this.emitVariable(dest, out);
                 out.append(" = ");
@@ -178,7 +180,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "exhaust")),
+            Namespace.of(List.of("core", "exhaust")),
             (tctx, args, argt, dest, out) -> {
                 out.append("while(");
                 this.emitVariable(args.get(0), out);
@@ -190,7 +192,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "panic")),
+            Namespace.of(List.of("core", "panic")),
             (tctx, args, argt, dest, out) -> {
                 out.append("throw ");
                 this.emitVariable(args.get(0), out);
@@ -198,7 +200,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "as_str")),
+            Namespace.of(List.of("core", "as_str")),
             (tctx, args, argt, dest, out) -> {
                 switch(tctx.get(argt.get(0)).type) {
                     case UNIT: {
@@ -275,7 +277,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "as_int")),
+            Namespace.of(List.of("core", "as_int")),
             (tctx, args, argt, dest, out) -> {
                 this.emitVariable(dest, out);
                 out.append(" = ");
@@ -305,7 +307,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "as_flt")),
+            Namespace.of(List.of("core", "as_flt")),
             (tctx, args, argt, dest, out) -> {
                 this.emitVariable(dest, out);
                 out.append(" = Number(");
@@ -314,7 +316,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "substring")),
+            Namespace.of(List.of("core", "substring")),
             (tctx, args, argt, dest, out) -> {
                 this.emitVariable(dest, out);
                 out.append(" = gera___substring(");
@@ -327,7 +329,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "concat")),
+            Namespace.of(List.of("core", "concat")),
             (tctx, args, argt, dest, out) -> {
                 this.emitVariable(dest, out);
                 out.append(" = ");
@@ -338,7 +340,7 @@ public class JsCodeGen implements CodeGen {
             }
         );
         this.builtIns.put(
-            new Namespace(List.of("core", "hash")),
+            Namespace.of(List.of("core", "hash")),
             (tctx, args, argt, dest, out) -> {
                 this.emitVariable(dest, out);
                 out.append(" = ");
@@ -359,11 +361,14 @@ public class JsCodeGen implements CodeGen {
 
     private long nextUnionTagNumber;
     private Map<String, Long> unionVariantTagNumbers;
+    private final Trace trace;
 
     public JsCodeGen(
         Map<String, String> sourceFiles, Symbols symbols, 
-        TypeContext typeContext, Ir.StaticValues staticValues
+        TypeContext typeContext, Ir.StaticValues staticValues,
+        Trace trace
     ) {
+        this.trace = trace;
         this.sourceFiles = sourceFiles;
         this.symbols = symbols;
         this.typeContext = typeContext;
@@ -391,7 +396,9 @@ public class JsCodeGen implements CodeGen {
     }
 
     @Override
-    public String generate(Namespace mainPath) {
+    public void generate(
+        Namespace mainPath, Appendable output
+    ) throws IOException {
         this.nextUnionTagNumber = 0;
         this.unionVariantTagNumbers = new HashMap<>();
         StringBuilder out = new StringBuilder();
@@ -410,12 +417,13 @@ public class JsCodeGen implements CodeGen {
         out.append("\n");
         this.emitStaticValues(out);
         out.append("\n");
-        this.emitSymbols(out);
+        CodeGen.flush(out, output);
+        this.emitSymbols(out, output);
         out.append("\n");
         this.emitVariant(mainPath, 0, out);
         out.append("();\n");
         out.append("})();\n");
-        return out.toString();
+        CodeGen.flush(out, output);
     }
 
     private void emitStaticValues(StringBuilder out) {
@@ -530,7 +538,9 @@ public class JsCodeGen implements CodeGen {
         }
     }
     
-    private void emitSymbols(StringBuilder out) {
+    private void emitSymbols(
+        StringBuilder out, Appendable output
+    ) throws IOException {
         for(Namespace path: this.symbols.allSymbolPaths()) {
             Symbols.Symbol symbol = this.symbols.get(path).get();
             if(symbol.type != Symbols.Symbol.Type.PROCEDURE) {
@@ -548,6 +558,9 @@ public class JsCodeGen implements CodeGen {
                 if(symbol.mappedVariantIdx(variantI) != variantI) { continue; }
                 Symbols.Symbol.Procedure variantData = symbol
                     .getVariant(variantI);
+                Trace.Span span = this.trace
+                    .begin(Trace.CODE_GENERATION, path.toString())
+                    .arg("variant", variantI);
                 out.append("function ");
                 this.emitVariant(path, variantI, out);
                 this.emitArgListDef(
@@ -560,6 +573,8 @@ public class JsCodeGen implements CodeGen {
                 this.exitContext();
                 out.append("}\n");
                 out.append("\n");
+                this.trace.end(span);
+                CodeGen.flush(out, output);
             }
         }
     }
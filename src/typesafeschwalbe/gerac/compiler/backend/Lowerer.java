@@ -13,10 +13,12 @@ import java.util.Set;
 import typesafeschwalbe.gerac.compiler.Error;
 import typesafeschwalbe.gerac.compiler.ErrorException;
 import typesafeschwalbe.gerac.compiler.Symbols;
+import typesafeschwalbe.gerac.compiler.Trace;
 import typesafeschwalbe.gerac.compiler.frontend.AstNode;
 import typesafeschwalbe.gerac.compiler.frontend.Namespace;
 import typesafeschwalbe.gerac.compiler.types.ConstraintSolver;
 import typesafeschwalbe.gerac.compiler.types.DataType;
+import typesafeschwalbe.gerac.compiler.types.NodeAnnotations;
 import typesafeschwalbe.gerac.compiler.types.TypeContext;
 import typesafeschwalbe.gerac.compiler.types.TypeVariable;
 
@@ -38,9 +40,11 @@ public class Lowerer {
     private final Symbols symbols;
     private final TypeContext typeContext;
     private final Interpreter interpreter;
+    private final Trace trace;
 
     public final Ir.StaticValues staticValues;
     private Ir.Context context;
+    private NodeAnnotations annotations;
     private final List<List<Ir.Instr>> blockStack;
     private List<BlockVariables> variableStack;
 
@@ -48,6 +52,14 @@ public class Lowerer {
         Map<String, String> sourceFiles,
         Symbols symbols, TypeContext typeContext
     ) {
+        this(sourceFiles, symbols, typeContext, Trace.disabled());
+    }
+
+    public Lowerer(
+        Map<String, String> sourceFiles,
+        Symbols symbols, TypeContext typeContext, Trace trace
+    ) {
+        this.trace = trace;
         this.symbols = symbols;
         this.typeContext = typeContext;
         this.interpreter = new Interpreter(sourceFiles, symbols);
@@ -116,7 +128,11 @@ public class Lowerer {
                     break;
                 }
                 if(mapped) { continue; }
+                Trace.Span span = this.trace
+                    .begin(Trace.LOWERING, symbolPath.toString())
+                    .arg("variant", variantI);
                 this.context = new Ir.Context();
+                this.annotations = variant.annotations().get();
                 this.enterBlock();
                 for(
                     int argI = 0; 
@@ -139,6 +155,7 @@ public class Lowerer {
                     body = this.exitBlock();
                 } catch(ErrorException e) {
                     this.exitBlock();
+                    this.trace.end(span);
                     return Optional.of(e.error);
                 }
                 symbol.setVariant(
@@ -148,10 +165,11 @@ public class Lowerer {
                         Optional.empty(),
                         variant.argumentTypes(),
                         variant.returnType(),
-                        variant.body(),
+                        variant.body(), variant.annotations(),
                         Optional.of(context), Optional.of(body)
                     )
                 );
+                this.trace.end(span);
             }
         }
         return Optional.empty();
@@ -207,8 +225,10 @@ public class Lowerer {
         }
         List<TypeVariable> argumentTypes = v.argumentTypes;
         Ir.Context prevContext = this.context;
+        NodeAnnotations prevAnnotations = this.annotations;
         List<BlockVariables> prevVars = this.variableStack;
         this.context = new Ir.Context();
+        this.annotations = v.annotations;
         this.variableStack = new LinkedList<>();
         this.enterBlock();
         for(
@@ -227,6 +247,7 @@ public class Lowerer {
         List<Ir.Instr> body = this.exitBlock();
         Ir.Context context = this.context;
         this.context = prevContext;
+        this.annotations = prevAnnotations;
         this.variableStack = prevVars;
         return new Ir.StaticValue.Closure(
             v, captureValues, argumentTypes, v.returnType, context, body
@@ -269,16 +290,20 @@ public class Lowerer {
     }
 
     private Optional<Ir.Variable> lowerNode(
-        AstNode node
+        AstNode unresolved
     ) throws ErrorException {
+        AstNode node = this.annotations.resolved(unresolved);
         switch(node.type) {
             case CLOSURE: {
                 AstNode.Closure data = node.getValue();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 List<String> captureNames = new ArrayList<>();
                 List<Ir.Variable> captureValues = new ArrayList<>();
                 Set<String> inheritedCaptures = new HashSet<>();
-                for(String captureName: data.captures().get().get().keySet()) {
+                Map<String, TypeVariable> captures = this.annotations
+                    .captures(data);
+                for(String captureName: captures.keySet()) {
                     captureNames.add(captureName);
                     if(this.variables().variables.containsKey(captureName)) {
                         Ir.Variable var = this.variables().variables
@@ -294,14 +319,15 @@ public class Lowerer {
                 this.context = new Ir.Context();
                 this.variableStack = new LinkedList<>();
                 this.enterBlock();
+                List<TypeVariable> argumentTypes = this.annotations
+                    .argumentTypes(data);
                 for(
                     int argI = 0; 
                     argI < data.argumentNames().size(); 
                     argI += 1
                 ) {
                     String argName = data.argumentNames().get(argI);
-                    TypeVariable argType = data.argumentTypes()
-                        .get().get().get(argI);
+                    TypeVariable argType = argumentTypes.get(argI);
                     Ir.Variable variable = this.context
                         .allocateArgument(argType);
                     this.variables().variables.put(argName, variable);
@@ -316,8 +342,8 @@ public class Lowerer {
                     Ir.Instr.Type.LOAD_CLOSURE,
                     captureValues,
                     new Ir.Instr.LoadClosure(
-                        data.argumentTypes().get().get(), 
-                        data.returnType().get().get(), 
+                        argumentTypes, 
+                        this.annotations.returnType(data), 
                         captureNames, inheritedCaptures, 
                         context, body
                     ), 
@@ -331,7 +357,9 @@ public class Lowerer {
                 if(data.value().isPresent()) {
                     value = this.lowerNode(data.value().get()).get();
                 } else {
-                    value = this.context.allocate(data.valueType().get().get());
+                    value = this.context.allocate(
+                        this.annotations.valueType(data)
+                    );
                 }
                 this.variables().variables.put(data.name(), value);
                 this.variables().lastUpdates.put(data.name(), value.version);
@@ -339,7 +367,7 @@ public class Lowerer {
             }
             case CASE_BRANCHING: {
                 AstNode.CaseBranching data = node.getValue();
-                TypeVariable valueType = data.value().resultType.get();
+                TypeVariable valueType = this.annotations.type(data.value());
                 Ir.Variable value = this.lowerNode(data.value()).get();
                 List<BlockVariables> branches = new ArrayList<>();
                 List<Ir.StaticValue> branchValues = new ArrayList<>();
@@ -350,7 +378,7 @@ public class Lowerer {
                     branchI += 1
                 ) {
                     Value branchValue = this.interpreter.evaluateStaticNode(
-                        data.branchValues().get(branchI)
+                        data.branchValues().get(branchI), this.annotations
                     );
                     branchValues.add(this.staticValues.add(
                         branchValue, valueType
@@ -394,7 +422,7 @@ public class Lowerer {
                     new Ir.Instr.BranchOnValue(
                         List.of(this.staticValues.add(
                             new Value.Bool(true),
-                            data.condition().resultType.get()
+                            this.annotations.type(data.condition())
                         )), 
                         List.of(ifBody), 
                         elseBody
@@ -408,7 +436,7 @@ public class Lowerer {
                 AstNode.CaseVariant data = node.getValue();
                 Ir.Variable value = this.lowerNode(data.value()).get();
                 DataType.Union<TypeVariable> valueVariants = this.typeContext
-                    .get(data.value().resultType.get()).getValue();
+                    .get(this.annotations.type(data.value())).getValue();
                 List<BlockVariables> branches = new ArrayList<>();
                 List<Optional<Ir.Variable>> branchVariables = new ArrayList<>();
                 List<List<Ir.Instr>> branchBodies = new ArrayList<>();
@@ -458,10 +486,10 @@ public class Lowerer {
             case ASSIGNMENT: {
                 AstNode.BiOp data = node.getValue();
                 Ir.Variable value = this.lowerNode(data.right()).get();
-                switch(data.left().type) {
+                AstNode left = this.annotations.resolved(data.left());
+                switch(left.type) {
                     case OBJECT_ACCESS: {
-                        AstNode.ObjectAccess accessData = data.left()
-                            .getValue();
+                        AstNode.ObjectAccess accessData = left.getValue();
                         Ir.Variable accessed = this
                             .lowerNode(accessData.accessed()).get();
                         this.block().add(new Ir.Instr(
@@ -472,8 +500,7 @@ public class Lowerer {
                         ));
                     } break;
                     case ARRAY_ACCESS: {
-                        AstNode.BiOp accessData = data.left()
-                            .getValue();
+                        AstNode.BiOp accessData = left.getValue();
                         Ir.Variable accessed = this
                             .lowerNode(accessData.left()).get();
                         Ir.Variable index = this
@@ -481,13 +508,12 @@ public class Lowerer {
                         this.block().add(new Ir.Instr(
                             Ir.Instr.Type.WRITE_ARRAY,
                             List.of(accessed, index, value),
-                            new Ir.Instr.ArrayAccess(data.left().source), 
+                            new Ir.Instr.ArrayAccess(left.source), 
                             Optional.empty()
                         ));
                     } break;
                     case VARIABLE_ACCESS: {
-                        AstNode.VariableAccess accessData = data.left()
-                            .getValue();
+                        AstNode.VariableAccess accessData = left.getValue();
                         boolean isLocal = this.variables().variables
                             .containsKey(accessData.variableName());
                         if(isLocal) {
@@ -539,7 +565,8 @@ public class Lowerer {
                 for(AstNode argument: data.arguments()) {
                     arguments.add(this.lowerNode(argument).get());
                 }
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.CALL_CLOSURE,
                     arguments,
@@ -554,7 +581,8 @@ public class Lowerer {
                 for(AstNode argument: data.arguments()) {
                     arguments.add(this.lowerNode(argument).get());
                 }
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.CALL_PROCEDURE,
                     arguments,
@@ -569,7 +597,7 @@ public class Lowerer {
                 AstNode.MethodCall data = node.getValue();
                 Ir.Variable accessed = this.lowerNode(data.called()).get();
                 DataType.UnorderedObject<TypeVariable> accessedObject
-                    = this.typeContext.get(data.called().resultType.get())
+                    = this.typeContext.get(this.annotations.type(data.called()))
                         .getValue(); 
                 TypeVariable calledType = accessedObject.memberTypes()
                     .get(data.memberName());
@@ -586,7 +614,8 @@ public class Lowerer {
                 for(AstNode argument: data.arguments()) {
                     arguments.add(this.lowerNode(argument).get());
                 }
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.CALL_CLOSURE,
                     arguments,
@@ -603,7 +632,8 @@ public class Lowerer {
                     names.add(member);
                     values.add(this.lowerNode(data.values().get(member)).get());
                 }
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_OBJECT,
                     values,
@@ -618,7 +648,8 @@ public class Lowerer {
                 for(AstNode value: data.values()) {
                     values.add(this.lowerNode(value).get());
                 }
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_FIXED_ARRAY,
                     values,
@@ -631,7 +662,8 @@ public class Lowerer {
                 AstNode.BiOp data = node.getValue();
                 Ir.Variable value = this.lowerNode(data.left()).get();
                 Ir.Variable size = this.lowerNode(data.right()).get();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_REPEAT_ARRAY,
                     List.of(value, size),
@@ -643,7 +675,8 @@ public class Lowerer {
             case OBJECT_ACCESS: {
                 AstNode.ObjectAccess data = node.getValue();
                 Ir.Variable accessed = this.lowerNode(data.accessed()).get();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.READ_OBJECT,
                     List.of(accessed), 
@@ -656,7 +689,8 @@ public class Lowerer {
                 AstNode.BiOp data = node.getValue();
                 Ir.Variable accessed = this.lowerNode(data.left()).get();
                 Ir.Variable index = this.lowerNode(data.right()).get();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.READ_ARRAY,
                     List.of(accessed, index), 
@@ -673,7 +707,8 @@ public class Lowerer {
                             .clone()
                     );
                 }
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.READ_CAPTURE,
                     List.of(), 
@@ -684,10 +719,11 @@ public class Lowerer {
             }
             case BOOLEAN_LITERAL: {
                 AstNode.SimpleLiteral data = node.getValue();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Ir.StaticValue value = this.staticValues.add(
                     new Value.Bool(Boolean.valueOf(data.value())),
-                    node.resultType.get()
+                    this.annotations.type(node)
                 );
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_STATIC_VALUE,
@@ -698,10 +734,11 @@ public class Lowerer {
             }
             case INTEGER_LITERAL: {
                 AstNode.SimpleLiteral data = node.getValue();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Ir.StaticValue value = this.staticValues.add(
                     new Value.Int(Long.valueOf(data.value())),
-                    node.resultType.get()
+                    this.annotations.type(node)
                 );
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_STATIC_VALUE,
@@ -712,10 +749,11 @@ public class Lowerer {
             }
             case FLOAT_LITERAL: {
                 AstNode.SimpleLiteral data = node.getValue();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Ir.StaticValue value = this.staticValues.add(
                     new Value.Float(Double.valueOf(data.value())),
-                    node.resultType.get()
+                    this.annotations.type(node)
                 );
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_STATIC_VALUE,
@@ -726,10 +764,11 @@ public class Lowerer {
             }
             case STRING_LITERAL: {
                 AstNode.SimpleLiteral data = node.getValue();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Ir.StaticValue value = this.staticValues.add(
                     new Value.Str(data.value()),
-                    node.resultType.get()
+                    this.annotations.type(node)
                 );
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_STATIC_VALUE,
@@ -739,9 +778,10 @@ public class Lowerer {
                 return Optional.of(dest);
             }
             case UNIT_LITERAL: {
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Ir.StaticValue value = this.staticValues.add(
-                    Value.UNIT, node.resultType.get()
+                    Value.UNIT, this.annotations.type(node)
                 );
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_STATIC_VALUE,
@@ -764,7 +804,8 @@ public class Lowerer {
                 AstNode.BiOp data = node.getValue();
                 Ir.Variable left = this.lowerNode(data.left()).get();
                 Ir.Variable right = this.lowerNode(data.right()).get();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Ir.Instr.Type t;
                 Object v = null;
                 switch(node.type) {
@@ -805,7 +846,8 @@ public class Lowerer {
             case NOT: {
                 AstNode.MonoOp data = node.getValue();
                 Ir.Variable value = this.lowerNode(data.value()).get();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Ir.Instr.Type t;
                 switch(node.type) {
                     case NEGATE: t = Ir.Instr.Type.NEGATE; break;
@@ -820,9 +862,10 @@ public class Lowerer {
             case OR: {
                 AstNode.BiOp data = node.getValue();
                 Ir.Variable left = this.lowerNode(data.left()).get();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Ir.StaticValue trueValue = this.staticValues.add(
-                    new Value.Bool(true), node.resultType.get()
+                    new Value.Bool(true), this.annotations.type(node)
                 );
                 this.enterBlock();
                 Ir.Variable right = this.lowerNode(data.right()).get();
@@ -865,9 +908,10 @@ public class Lowerer {
             case AND: {
                 AstNode.BiOp data = node.getValue();
                 Ir.Variable left = this.lowerNode(data.left()).get();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Ir.StaticValue falseValue = this.staticValues.add(
-                    new Value.Bool(false), node.resultType.get()
+                    new Value.Bool(false), this.annotations.type(node)
                 );
                 this.enterBlock();
                 Ir.Variable right = this.lowerNode(data.right()).get();
@@ -910,24 +954,26 @@ public class Lowerer {
             case MODULE_ACCESS: {
                 // this can only be a global variable access
                 AstNode.ModuleAccess data = node.getValue();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 Symbols.Symbol symbol = this.symbols.get(data.path()).get();
                 Symbols.Symbol.Variable variant = symbol
                     .getVariant(data.variant().get());
                 if(variant.valueNode().isPresent()) {
                     if(variant.value().isEmpty()) {
                         Value value = this.interpreter.evaluateStaticNode(
-                            variant.valueNode().get()
+                            variant.valueNode().get(),
+                            variant.annotations().get()
                         );
                         variant = new Symbols.Symbol.Variable(
                             variant.valueType(), variant.valueNode(), 
-                            Optional.of(value)
+                            variant.annotations(), Optional.of(value)
                         );
                         symbol.setVariant(data.variant().get(), variant);
                     }
                     Value value = variant.value().get();
                     Ir.StaticValue staticValue = this.staticValues
-                        .add(value, node.resultType.get());
+                        .add(value, this.annotations.type(node));
                     this.block().add(new Ir.Instr(
                         Ir.Instr.Type.LOAD_STATIC_VALUE,
                         List.of(),
@@ -947,7 +993,8 @@ public class Lowerer {
             case VARIANT_LITERAL: {
                 AstNode.VariantLiteral data = node.getValue();
                 Ir.Variable value = this.lowerNode(data.value()).get();
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_VARIANT,
                     List.of(value),
@@ -959,7 +1006,8 @@ public class Lowerer {
             case VARIANT_UNWRAP: {
                 AstNode.VariantUnwrap data = node.getValue();
                 Ir.Variable unwrapped = this.lowerNode(data.unwrapped()).get();
-                Ir.Variable val = this.context.allocate(node.resultType.get());
+                Ir.Variable val = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.BRANCH_ON_VARIANT,
                     List.of(unwrapped),
@@ -977,10 +1025,13 @@ public class Lowerer {
             }
             case STATIC: {
                 AstNode.MonoOp data = node.getValue();
-                Value value = this.interpreter.evaluateStaticNode(data.value());
+                Value value = this.interpreter.evaluateStaticNode(
+                    data.value(), this.annotations
+                );
                 Ir.StaticValue staticValue = this.staticValues
-                    .add(value, node.resultType.get());
-                Ir.Variable dest = this.context.allocate(node.resultType.get());
+                    .add(value, this.annotations.type(node));
+                Ir.Variable dest = this.context
+                    .allocate(this.annotations.type(node));
                 this.block().add(new Ir.Instr(
                     Ir.Instr.Type.LOAD_STATIC_VALUE,
                     List.of(),
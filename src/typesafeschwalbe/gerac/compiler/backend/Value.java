@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Optional;
 
 import typesafeschwalbe.gerac.compiler.frontend.AstNode;
+import typesafeschwalbe.gerac.compiler.types.NodeAnnotations;
 import typesafeschwalbe.gerac.compiler.types.TypeVariable;
 
 public abstract class Value {
@@ -153,6 +154,7 @@ public abstract class Value {
         public final List<TypeVariable> argumentTypes;
         public final TypeVariable returnType;
         public final List<AstNode> body;
+        public final NodeAnnotations annotations;
 
         public Closure(
             Map<String, TypeVariable> captureTypes,
@@ -160,7 +162,8 @@ public abstract class Value {
             List<String> argumentNames,
             List<TypeVariable> argumentTypes,
             TypeVariable returnType,
-            List<AstNode> body
+            List<AstNode> body,
+            NodeAnnotations annotations
         ) {
             this.captureTypes = captureTypes;
             this.environment = environment;
@@ -168,6 +171,7 @@ public abstract class Value {
             this.argumentTypes = argumentTypes;
             this.returnType = returnType;
             this.body = body;
+            this.annotations = annotations;
         }
 
         @Override
@@ -16,7 +16,9 @@ public class AstNode {
         boolean isPublic,
         String name,
         List<String> argumentNames,
-        List<AstNode> body
+        List<AstNode> body,
+        // present if the body has been skipped by the parser
+        Optional<DeferredBody> deferredBody
     ) {}
 
     public static record Closure(
@@ -0,0 +1,549 @@
+
+package typesafeschwalbe.gerac.compiler.frontend;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import typesafeschwalbe.gerac.compiler.Ref;
+import typesafeschwalbe.gerac.compiler.Source;
+import typesafeschwalbe.gerac.compiler.Target;
+
+// Reads and writes the nodes produced by 'SourceParser' in a compact binary
+// form. Only unprocessed trees (no types, no resolved procedure calls)
+// can be written. All nodes are expected to come from the same file.
+// Procedure bodies that haven't been parsed yet are only written as the
+// location of their source text, which is why reading requires the file.
+public class AstSerializer {
+
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int NO_VALUE = -1;
+
+    public static class Writer {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings;
+
+        public Writer(DataOutputStream out) {
+            this.out = out;
+            this.strings = new HashMap<>();
+        }
+
+        public void writeNodes(List<AstNode> nodes) throws IOException {
+            this.out.writeInt(nodes.size());
+            for(AstNode node: nodes) {
+                this.writeNode(node);
+            }
+        }
+
+        private void writeOptionalNodes(
+            Optional<List<AstNode>> nodes
+        ) throws IOException {
+            this.out.writeBoolean(nodes.isPresent());
+            if(nodes.isPresent()) {
+                this.writeNodes(nodes.get());
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            Integer existing = this.strings.get(value);
+            if(existing != null) {
+                this.out.writeInt(existing);
+                return;
+            }
+            this.strings.put(value, this.strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.out.writeInt(NO_VALUE);
+            this.out.writeInt(bytes.length);
+            this.out.write(bytes);
+        }
+
+        private void writeOptionalString(
+            Optional<String> value
+        ) throws IOException {
+            this.out.writeBoolean(value.isPresent());
+            if(value.isPresent()) {
+                this.writeString(value.get());
+            }
+        }
+
+        private void writeStrings(List<String> values) throws IOException {
+            this.out.writeInt(values.size());
+            for(String value: values) {
+                this.writeString(value);
+            }
+        }
+
+        private void writePath(Namespace path) throws IOException {
+            this.writeStrings(path.elements());
+        }
+
+        public void writeNode(AstNode node) throws IOException {
+            this.out.writeByte(node.type.ordinal());
+            this.out.writeInt(node.source.startOffset());
+            this.out.writeInt(node.source.endOffset());
+            switch(node.type) {
+                case PROCEDURE: {
+                    AstNode.Procedure data = node.getValue();
+                    this.writeOptionalString(data.docComment());
+                    this.out.writeBoolean(data.isPublic());
+                    this.writeString(data.name());
+                    this.writeStrings(data.argumentNames());
+                    boolean isDeferred = data.deferredBody().isPresent()
+                        && !data.deferredBody().get().isParsed();
+                    this.out.writeBoolean(isDeferred);
+                    if(isDeferred) {
+                        DeferredBody body = data.deferredBody().get();
+                        this.out.writeInt(body.startOffset());
+                        this.out.writeInt(body.endOffset());
+                    } else {
+                        this.writeNodes(data.body());
+                    }
+                } break;
+                case CLOSURE: {
+                    AstNode.Closure data = node.getValue();
+                    this.writeStrings(data.argumentNames());
+                    this.writeNodes(data.body());
+                } break;
+                case VARIABLE: {
+                    AstNode.Variable data = node.getValue();
+                    this.writeOptionalString(data.docComment());
+                    this.out.writeBoolean(data.isPublic());
+                    this.out.writeBoolean(data.isMutable());
+                    this.writeString(data.name());
+                    this.out.writeBoolean(data.value().isPresent());
+                    if(data.value().isPresent()) {
+                        this.writeNode(data.value().get());
+                    }
+                } break;
+                case CASE_BRANCHING: {
+                    AstNode.CaseBranching data = node.getValue();
+                    this.writeNode(data.value());
+                    this.writeNodes(data.branchValues());
+                    this.out.writeInt(data.branchBodies().size());
+                    for(List<AstNode> branchBody: data.branchBodies()) {
+                        this.writeNodes(branchBody);
+                    }
+                    this.writeNodes(data.elseBody());
+                } break;
+                case CASE_CONDITIONAL: {
+                    AstNode.CaseConditional data = node.getValue();
+                    this.writeNode(data.condition());
+                    this.writeNodes(data.ifBody());
+                    this.writeNodes(data.elseBody());
+                } break;
+                case CASE_VARIANT: {
+                    AstNode.CaseVariant data = node.getValue();
+                    this.writeNode(data.value());
+                    this.writeStrings(data.branchVariants());
+                    this.out.writeInt(data.branchVariableNames().size());
+                    for(Optional<String> name: data.branchVariableNames()) {
+                        this.writeOptionalString(name);
+                    }
+                    this.out.writeInt(data.branchBodies().size());
+                    for(List<AstNode> branchBody: data.branchBodies()) {
+                        this.writeNodes(branchBody);
+                    }
+                    this.writeOptionalNodes(data.elseBody());
+                } break;
+                case CALL: {
+                    AstNode.Call data = node.getValue();
+                    this.writeNode(data.called());
+                    this.writeNodes(data.arguments());
+                } break;
+                case METHOD_CALL: {
+                    AstNode.MethodCall data = node.getValue();
+                    this.writeNode(data.called());
+                    this.writeString(data.memberName());
+                    this.writeNodes(data.arguments());
+                } break;
+                case OBJECT_LITERAL: {
+                    AstNode.ObjectLiteral data = node.getValue();
+                    this.out.writeInt(data.values().size());
+                    for(String member: data.values().keySet()) {
+                        this.writeString(member);
+                        this.writeNode(data.values().get(member));
+                    }
+                } break;
+                case ARRAY_LITERAL: {
+                    AstNode.ArrayLiteral data = node.getValue();
+                    this.writeNodes(data.values());
+                } break;
+                case OBJECT_ACCESS: {
+                    AstNode.ObjectAccess data = node.getValue();
+                    this.writeNode(data.accessed());
+                    this.writeString(data.memberName());
+                } break;
+                case BOOLEAN_LITERAL:
+                case INTEGER_LITERAL:
+                case FLOAT_LITERAL:
+                case STRING_LITERAL: {
+                    AstNode.SimpleLiteral data = node.getValue();
+                    this.writeString(data.value());
+                } break;
+                case UNIT_LITERAL: {
+                } break;
+                case ASSIGNMENT:
+                case REPEATING_ARRAY_LITERAL:
+                case ARRAY_ACCESS:
+                case ADD:
+                case SUBTRACT:
+                case MULTIPLY:
+                case DIVIDE:
+                case MODULO:
+                case LESS_THAN:
+                case GREATER_THAN:
+                case LESS_THAN_EQUAL:
+                case GREATER_THAN_EQUAL:
+                case EQUALS:
+                case NOT_EQUALS:
+                case OR:
+                case AND: {
+                    AstNode.BiOp data = node.getValue();
+                    this.writeNode(data.left());
+                    this.writeNode(data.right());
+                } break;
+                case RETURN:
+                case NEGATE:
+                case NOT:
+                case STATIC: {
+                    AstNode.MonoOp data = node.getValue();
+                    this.writeNode(data.value());
+                } break;
+                case MODULE_DECLARATION: {
+                    AstNode.ModuleDeclaration data = node.getValue();
+                    this.writeOptionalString(data.docComment());
+                    this.writePath(data.path());
+                } break;
+                case MODULE_ACCESS: {
+                    AstNode.ModuleAccess data = node.getValue();
+                    this.writePath(data.path());
+                } break;
+                case USE: {
+                    AstNode.Usages data = node.getValue();
+                    this.out.writeInt(data.paths().size());
+                    for(Namespace path: data.paths()) {
+                        this.writePath(path);
+                    }
+                } break;
+                case VARIANT_LITERAL: {
+                    AstNode.VariantLiteral data = node.getValue();
+                    this.writeString(data.variantName());
+                    this.writeNode(data.value());
+                } break;
+                case VARIANT_UNWRAP: {
+                    AstNode.VariantUnwrap data = node.getValue();
+                    this.writeNode(data.unwrapped());
+                    this.writeString(data.variantName());
+                } break;
+                case PROCEDURE_CALL:
+                case VARIABLE_ACCESS:
+                case TARGET: {
+                    throw new RuntimeException("should not be encountered!");
+                }
+                default: {
+                    throw new RuntimeException("unhandled node type!");
+                }
+            }
+        }
+
+    }
+
+    public static class Reader {
+
+        private final DataInputStream in;
+        private final String fileName;
+        private final String fileContent;
+        private final Target target;
+        // added to all read offsets, for nodes whose source text has moved
+        private final int offsetShift;
+        private final List<String> strings;
+
+        public Reader(
+            DataInputStream in, String fileName, String fileContent,
+            Target target
+        ) {
+            this(in, fileName, fileContent, target, 0);
+        }
+
+        public Reader(
+            DataInputStream in, String fileName, String fileContent,
+            Target target, int offsetShift
+        ) {
+            this.in = in;
+            this.fileName = fileName;
+            this.fileContent = fileContent;
+            this.target = target;
+            this.offsetShift = offsetShift;
+            this.strings = new ArrayList<>();
+        }
+
+        public List<AstNode> readNodes() throws IOException {
+            int nodeC = this.in.readInt();
+            List<AstNode> nodes = new ArrayList<>(nodeC);
+            for(int nodeI = 0; nodeI < nodeC; nodeI += 1) {
+                nodes.add(this.readNode());
+            }
+            return nodes;
+        }
+
+        private Optional<List<AstNode>> readOptionalNodes() throws IOException {
+            if(!this.in.readBoolean()) {
+                return Optional.empty();
+            }
+            return Optional.of(this.readNodes());
+        }
+
+        private String readString() throws IOException {
+            int index = this.in.readInt();
+            if(index != NO_VALUE) {
+                if(index < 0 || index >= this.strings.size()) {
+                    throw new IOException("invalid string reference");
+                }
+                return this.strings.get(index);
+            }
+            byte[] bytes = new byte[this.in.readInt()];
+            this.in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            this.strings.add(value);
+            return value;
+        }
+
+        private Optional<String> readOptionalString() throws IOException {
+            if(!this.in.readBoolean()) {
+                return Optional.empty();
+            }
+            return Optional.of(this.readString());
+        }
+
+        private List<String> readStrings() throws IOException {
+            int stringC = this.in.readInt();
+            List<String> values = new ArrayList<>(stringC);
+            for(int stringI = 0; stringI < stringC; stringI += 1) {
+                values.add(this.readString());
+            }
+            return values;
+        }
+
+        private Namespace readPath() throws IOException {
+            return Namespace.of(this.readStrings());
+        }
+
+        public AstNode readNode() throws IOException {
+            int typeIdx = this.in.readByte();
+            if(typeIdx < 0 || typeIdx >= AstNode.Type.values().length) {
+                throw new IOException("invalid node type");
+            }
+            AstNode.Type type = AstNode.Type.values()[typeIdx];
+            int startOffset = this.in.readInt() + this.offsetShift;
+            int endOffset = this.in.readInt() + this.offsetShift;
+            Source source = new Source(this.fileName, startOffset, endOffset);
+            Object value;
+            switch(type) {
+                case PROCEDURE: {
+                    Optional<String> docComment = this.readOptionalString();
+                    boolean isPublic = this.in.readBoolean();
+                    String name = this.readString();
+                    List<String> argumentNames = this.readStrings();
+                    List<AstNode> body;
+                    Optional<DeferredBody> deferredBody = Optional.empty();
+                    if(this.in.readBoolean()) {
+                        int bodyStart = this.in.readInt() + this.offsetShift;
+                        int bodyEnd = this.in.readInt() + this.offsetShift;
+                        if(bodyStart < 0 || bodyEnd > this.fileContent.length()
+                            || bodyStart >= bodyEnd) {
+                            throw new IOException("invalid body location");
+                        }
+                        DeferredBody deferred = new DeferredBody(
+                            this.fileName, this.fileContent, this.target,
+                            bodyStart, bodyEnd
+                        );
+                        body = deferred.nodes();
+                        deferredBody = Optional.of(deferred);
+                    } else {
+                        body = this.readNodes();
+                    }
+                    value = new AstNode.Procedure(
+                        docComment, isPublic, name, argumentNames, body,
+                        deferredBody
+                    );
+                } break;
+                case CLOSURE: {
+                    List<String> argumentNames = this.readStrings();
+                    List<AstNode> body = this.readNodes();
+                    value = new AstNode.Closure(
+                        argumentNames,
+                        new Ref<>(Optional.empty()),
+                        new Ref<>(Optional.empty()),
+                        new Ref<>(Optional.empty()),
+                        body
+                    );
+                } break;
+                case VARIABLE: {
+                    Optional<String> docComment = this.readOptionalString();
+                    boolean isPublic = this.in.readBoolean();
+                    boolean isMutable = this.in.readBoolean();
+                    String name = this.readString();
+                    Optional<AstNode> varValue = this.in.readBoolean()
+                        ? Optional.of(this.readNode())
+                        : Optional.empty();
+                    value = new AstNode.Variable(
+                        docComment, isPublic, isMutable, name,
+                        new Ref<>(Optional.empty()),
+                        varValue
+                    );
+                } break;
+                case CASE_BRANCHING: {
+                    AstNode matched = this.readNode();
+                    List<AstNode> branchValues = this.readNodes();
+                    int branchC = this.in.readInt();
+                    List<List<AstNode>> branchBodies = new ArrayList<>();
+                    for(int branchI = 0; branchI < branchC; branchI += 1) {
+                        branchBodies.add(this.readNodes());
+                    }
+                    List<AstNode> elseBody = this.readNodes();
+                    value = new AstNode.CaseBranching(
+                        matched, branchValues, branchBodies, elseBody
+                    );
+                } break;
+                case CASE_CONDITIONAL: {
+                    AstNode condition = this.readNode();
+                    List<AstNode> ifBody = this.readNodes();
+                    List<AstNode> elseBody = this.readNodes();
+                    value = new AstNode.CaseConditional(
+                        condition, ifBody, elseBody
+                    );
+                } break;
+                case CASE_VARIANT: {
+                    AstNode matched = this.readNode();
+                    List<String> branchVariants = this.readStrings();
+                    int nameC = this.in.readInt();
+                    List<Optional<String>> branchVariableNames
+                        = new ArrayList<>();
+                    for(int nameI = 0; nameI < nameC; nameI += 1) {
+                        branchVariableNames.add(this.readOptionalString());
+                    }
+                    int branchC = this.in.readInt();
+                    List<List<AstNode>> branchBodies = new ArrayList<>();
+                    for(int branchI = 0; branchI < branchC; branchI += 1) {
+                        branchBodies.add(this.readNodes());
+                    }
+                    Optional<List<AstNode>> elseBody = this.readOptionalNodes();
+                    value = new AstNode.CaseVariant(
+                        matched, branchVariants, branchVariableNames,
+                        branchBodies, elseBody
+                    );
+                } break;
+                case CALL: {
+                    AstNode called = this.readNode();
+                    List<AstNode> arguments = this.readNodes();
+                    value = new AstNode.Call(called, arguments);
+                } break;
+                case METHOD_CALL: {
+                    AstNode called = this.readNode();
+                    String memberName = this.readString();
+                    List<AstNode> arguments = this.readNodes();
+                    value = new AstNode.MethodCall(
+                        called, memberName, arguments
+                    );
+                } break;
+                case OBJECT_LITERAL: {
+                    int memberC = this.in.readInt();
+                    Map<String, AstNode> values = new HashMap<>();
+                    for(int memberI = 0; memberI < memberC; memberI += 1) {
+                        String member = this.readString();
+                        values.put(member, this.readNode());
+                    }
+                    value = new AstNode.ObjectLiteral(values);
+                } break;
+                case ARRAY_LITERAL: {
+                    value = new AstNode.ArrayLiteral(this.readNodes());
+                } break;
+                case OBJECT_ACCESS: {
+                    AstNode accessed = this.readNode();
+                    String memberName = this.readString();
+                    value = new AstNode.ObjectAccess(accessed, memberName);
+                } break;
+                case BOOLEAN_LITERAL:
+                case INTEGER_LITERAL:
+                case FLOAT_LITERAL:
+                case STRING_LITERAL: {
+                    value = new AstNode.SimpleLiteral(this.readString());
+                } break;
+                case UNIT_LITERAL: {
+                    value = null;
+                } break;
+                case ASSIGNMENT:
+                case REPEATING_ARRAY_LITERAL:
+                case ARRAY_ACCESS:
+                case ADD:
+                case SUBTRACT:
+                case MULTIPLY:
+                case DIVIDE:
+                case MODULO:
+                case LESS_THAN:
+                case GREATER_THAN:
+                case LESS_THAN_EQUAL:
+                case GREATER_THAN_EQUAL:
+                case EQUALS:
+                case NOT_EQUALS:
+                case OR:
+                case AND: {
+                    AstNode left = this.readNode();
+                    AstNode right = this.readNode();
+                    value = new AstNode.BiOp(left, right);
+                } break;
+                case RETURN:
+                case NEGATE:
+                case NOT:
+                case STATIC: {
+                    value = new AstNode.MonoOp(this.readNode());
+                } break;
+                case MODULE_DECLARATION: {
+                    Optional<String> docComment = this.readOptionalString();
+                    value = new AstNode.ModuleDeclaration(
+                        docComment, this.readPath()
+                    );
+                } break;
+                case MODULE_ACCESS: {
+                    value = new AstNode.ModuleAccess(
+                        this.readPath(), Optional.empty()
+                    );
+                } break;
+                case USE: {
+                    int pathC = this.in.readInt();
+                    List<Namespace> paths = new ArrayList<>();
+                    for(int pathI = 0; pathI < pathC; pathI += 1) {
+                        paths.add(this.readPath());
+                    }
+                    value = new AstNode.Usages(paths);
+                } break;
+                case VARIANT_LITERAL: {
+                    String variantName = this.readString();
+                    AstNode variantValue = this.readNode();
+                    value = new AstNode.VariantLiteral(
+                        variantName, variantValue
+                    );
+                } break;
+                case VARIANT_UNWRAP: {
+                    AstNode unwrapped = this.readNode();
+                    String variantName = this.readString();
+                    value = new AstNode.VariantUnwrap(unwrapped, variantName);
+                } break;
+                default: {
+                    throw new IOException("unexpected node type");
+                }
+            }
+            return new AstNode(type, value, source);
+        }
+
+    }
+
+}
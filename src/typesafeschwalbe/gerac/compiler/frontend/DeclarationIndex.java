@@ -0,0 +1,151 @@
+
+package typesafeschwalbe.gerac.compiler.frontend;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+// The locations of the top-level statements ('mod', 'use', 'proc', 'val',
+// 'mut' and 'target') of a file, found by scanning the characters of the
+// file without lexing it. Each declaration also covers the comments and
+// whitespace in front of it, meaning that together the declarations cover
+// the entire file and each one can be parsed on its own.
+public class DeclarationIndex {
+
+    private static final String[] STATEMENT_KEYWORDS = {
+        "mod", "use", "proc", "val", "mut", "target", "pub"
+    };
+
+    // declaration 'i' spans from 'bounds[i]' to 'bounds[i + 1]'
+    private final int[] bounds;
+
+    private DeclarationIndex(int[] bounds) {
+        this.bounds = bounds;
+    }
+
+    // Returns nothing if the file has unbalanced brackets or unclosed
+    // strings, since it then needs to be parsed as a whole for the
+    // errors to be reported correctly.
+    public static Optional<DeclarationIndex> of(String fileContent) {
+        return DeclarationIndex.of(fileContent, 0, fileContent.length());
+    }
+
+    // Only indexes the part of the file between the given offsets, which
+    // need to be located between two declarations. Additionally returns
+    // nothing if a comment at the end of the part might continue after it.
+    public static Optional<DeclarationIndex> of(
+        String fileContent, int startPos, int endPos
+    ) {
+        int[] bounds = new int[16];
+        bounds[0] = startPos;
+        int boundC = 1;
+        int depth = 0;
+        int lastTokenEnd = startPos;
+        boolean commentAtEnd = false;
+        boolean sawStatement = false;
+        boolean afterPublic = false;
+        int pos = startPos;
+        while(pos < endPos) {
+            char c = fileContent.charAt(pos);
+            if(Lexer.isWhitespace(c)) {
+                pos += 1;
+                continue;
+            }
+            if(c == '/' && pos + 1 < endPos
+                && fileContent.charAt(pos + 1) == '/') {
+                while(pos < endPos && fileContent.charAt(pos) != '\n'
+                    && fileContent.charAt(pos) != '\r') {
+                    pos += 1;
+                }
+                // doc comments are joined with the ones on the next lines
+                commentAtEnd = true;
+                continue;
+            }
+            if(Lexer.isAlphanumeral(c)) {
+                int end = pos + 1;
+                while(end < endPos
+                    && Lexer.isAlphanumeral(fileContent.charAt(end))) {
+                    end += 1;
+                }
+                boolean isStatement = depth == 0 && !afterPublic
+                    && DeclarationIndex.isStatementKeyword(
+                        fileContent, pos, end
+                    );
+                if(isStatement && sawStatement) {
+                    if(boundC == bounds.length) {
+                        bounds = Arrays.copyOf(bounds, boundC * 2);
+                    }
+                    bounds[boundC] = lastTokenEnd;
+                    boundC += 1;
+                }
+                sawStatement |= isStatement;
+                afterPublic = depth == 0
+                    && fileContent.startsWith("pub", pos) && end - pos == 3;
+                pos = end;
+                lastTokenEnd = end;
+                commentAtEnd = false;
+                continue;
+            }
+            afterPublic = false;
+            if(c == '"') {
+                pos += 1;
+                boolean escaped = false;
+                while(true) {
+                    if(pos >= endPos) { return Optional.empty(); }
+                    char s = fileContent.charAt(pos);
+                    pos += 1;
+                    if(escaped) {
+                        escaped = false;
+                    } else if(s == '\\') {
+                        escaped = true;
+                    } else if(s == '"') {
+                        break;
+                    }
+                }
+                lastTokenEnd = pos;
+                commentAtEnd = false;
+                continue;
+            }
+            if(c == '(' || c == '[' || c == '{') { depth += 1; }
+            if(c == ')' || c == ']' || c == '}') {
+                depth -= 1;
+                if(depth < 0) { return Optional.empty(); }
+            }
+            pos += 1;
+            lastTokenEnd = pos;
+            commentAtEnd = false;
+        }
+        if(depth != 0) { return Optional.empty(); }
+        if(commentAtEnd && endPos < fileContent.length()) {
+            return Optional.empty();
+        }
+        bounds = Arrays.copyOf(bounds, boundC + 1);
+        bounds[boundC] = endPos;
+        return Optional.of(new DeclarationIndex(bounds));
+    }
+
+    private static boolean isStatementKeyword(
+        String fileContent, int start, int end
+    ) {
+        if(end - start < 3 || end - start > 6) { return false; }
+        for(String keyword: STATEMENT_KEYWORDS) {
+            if(keyword.length() == end - start
+                && fileContent.startsWith(keyword, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return this.bounds.length - 1;
+    }
+
+    public int start(int declaration) {
+        return this.bounds[declaration];
+    }
+
+    public int end(int declaration) {
+        return this.bounds[declaration + 1];
+    }
+
+}
@@ -0,0 +1,83 @@
+
+package typesafeschwalbe.gerac.compiler.frontend;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import typesafeschwalbe.gerac.compiler.ErrorException;
+import typesafeschwalbe.gerac.compiler.Target;
+
+// The body of a procedure that has only been skipped over by the parser.
+// It gets parsed the first time the procedure is checked, meaning that the
+// bodies of procedures that are never used are never parsed at all.
+// The node list is shared with the syntax tree and stays empty until then.
+public class DeferredBody {
+
+    // Thrown if a deferred body can't be parsed. Unlike the other errors
+    // found while checking a procedure, it is not caused by the types the
+    // procedure is used with, which is why it always fails the compilation.
+    public static class SyntaxErrorException extends ErrorException {
+
+        public SyntaxErrorException(ErrorException cause) {
+            super(cause.error);
+        }
+
+    }
+
+    private final String fileName;
+    private final String fileContent;
+    private final Target target;
+    // from the opening brace to (and including) the closing brace
+    private final int startOffset;
+    private final int endOffset;
+    private final List<AstNode> nodes;
+    private boolean parsed;
+
+    public DeferredBody(
+        String fileName, String fileContent, Target target,
+        int startOffset, int endOffset
+    ) {
+        this.fileName = fileName;
+        this.fileContent = fileContent;
+        this.target = target;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.nodes = new ArrayList<>();
+        this.parsed = false;
+    }
+
+    public int startOffset() {
+        return this.startOffset;
+    }
+
+    public int endOffset() {
+        return this.endOffset;
+    }
+
+    public List<AstNode> nodes() {
+        return this.nodes;
+    }
+
+    public boolean isParsed() {
+        return this.parsed;
+    }
+
+    public void parse() throws SyntaxErrorException {
+        if(this.parsed) { return; }
+        List<AstNode> parsedNodes;
+        try {
+            parsedNodes = new SourceParser(
+                new Lexer(
+                    this.fileName, this.fileContent,
+                    this.startOffset, this.endOffset
+                ),
+                this.target
+            ).parseDeferredBody();
+        } catch(ErrorException e) {
+            throw new SyntaxErrorException(e);
+        }
+        this.nodes.addAll(parsedNodes);
+        this.parsed = true;
+    }
+
+}
@@ -32,24 +32,19 @@ public class ExternalMappingsParser extends Parser {
     }
 
     public void parseStatements() throws ErrorException {
-        while(this.current.type != Token.Type.FILE_END) {
+        while(this.currentType() != Token.Type.FILE_END) {
             this.parseStatement(); 
         }
     }
 
     private void parseStatement() throws ErrorException {
-        Optional<String> docComment = Optional.empty();
-        boolean hasDocComment = this.last_filtered.isPresent() 
-            && this.last_filtered.get().type == Token.Type.DOC_COMMENT;
-        if(hasDocComment) {
-            docComment = Optional.of(this.last_filtered.get().content);
-        }
-        Token start = this.current;
-        switch(start.content) {
+        Optional<String> docComment = this.docComment();
+        int start = this.current;
+        switch(this.tokens.content(start)) {
             case "type": {
                 this.next();
                 this.expect(Token.Type.IDENTIFIER);
-                String name = this.current.content;
+                String name = this.currentContent();
                 this.next();
                 this.expect(Token.Type.EQUALS);
                 this.next();
@@ -60,51 +55,51 @@ public class ExternalMappingsParser extends Parser {
                 this.next();
                 List<String> pathElements = new ArrayList<>();
                 this.expect(Token.Type.IDENTIFIER);
-                pathElements.add(this.current.content);
+                pathElements.add(this.currentContent());
                 this.next();
                 this.expect(Token.Type.DOUBLE_COLON);
-                while(this.current.type == Token.Type.DOUBLE_COLON) {
+                while(this.currentType() == Token.Type.DOUBLE_COLON) {
                     this.next();
                     this.expect(Token.Type.IDENTIFIER);
-                    pathElements.add(this.current.content);
+                    pathElements.add(this.currentContent());
                     this.next();
                 }
                 this.expect(Token.Type.PAREN_OPEN);
                 this.next();
                 List<Supplier<TypeVariable>> argumentTypes = new ArrayList<>();
                 List<String> argumentNames = new ArrayList<>();
-                while(this.current.type != Token.Type.PAREN_CLOSE) {
+                while(this.currentType() != Token.Type.PAREN_CLOSE) {
                     Supplier<TypeVariable> argumentType = this.parseType();
                     argumentTypes.add(argumentType);
                     argumentNames.add("arg" + argumentNames.size());
                     this.expect(Token.Type.PAREN_CLOSE, Token.Type.COMMA);
-                    if(this.current.type == Token.Type.COMMA) {
+                    if(this.currentType() == Token.Type.COMMA) {
                         this.next();
                     }
                 }
                 this.next();
                 this.expect(Token.Type.ARROW, Token.Type.EQUALS);
                 Supplier<TypeVariable> returnType;
-                if(this.current.type == Token.Type.ARROW) {
+                if(this.currentType() == Token.Type.ARROW) {
                     this.next();
                     returnType = this.parseType();
                 } else {
                     returnType = () -> this.ctx.makeVar(new DataType<>(
                         DataType.Type.UNIT, null,
-                        Optional.of(this.current.source)
+                        Optional.of(this.currentSource())
                     ));
                 }
                 this.expect(Token.Type.EQUALS);
                 this.next();
                 this.expect(Token.Type.IDENTIFIER);
-                String externalName = this.current.content;
-                Token end = this.current;
+                String externalName = this.currentContent();
+                int end = this.current;
                 this.next();
                 this.symbols.add(
-                    new Namespace(pathElements),
+                    Namespace.of(pathElements),
                     new Symbols.Symbol(
                         Symbols.Symbol.Type.PROCEDURE, 
-                        true, new Source(start.source, end.source), 
+                        true, this.tokens.source(start, end), 
                         new Namespace[0], 
                         new Symbols.Symbol.Procedure(
                             argumentNames,
@@ -116,7 +111,7 @@ public class ExternalMappingsParser extends Parser {
                             )),
                             Optional.empty(), Optional.empty(), 
                             Optional.empty(), Optional.empty(), 
-                            Optional.empty()
+                            Optional.empty(), Optional.empty()
                         ),
                         Optional.of(externalName),
                         docComment
@@ -127,31 +122,31 @@ public class ExternalMappingsParser extends Parser {
                 this.next();
                 List<String> pathElements = new ArrayList<>();
                 this.expect(Token.Type.IDENTIFIER);
-                pathElements.add(this.current.content);
+                pathElements.add(this.currentContent());
                 this.next();
                 this.expect(Token.Type.DOUBLE_COLON);
-                while(this.current.type == Token.Type.DOUBLE_COLON) {
+                while(this.currentType() == Token.Type.DOUBLE_COLON) {
                     this.next();
                     this.expect(Token.Type.IDENTIFIER);
-                    pathElements.add(this.current.content);
+                    pathElements.add(this.currentContent());
                     this.next();
                 }
                 TypeVariable valueType = this.parseType().get();
                 this.expect(Token.Type.EQUALS);
                 this.next();
                 this.expect(Token.Type.IDENTIFIER);
-                String externalName = this.current.content;
-                Token end = this.current;
+                String externalName = this.currentContent();
+                int end = this.current;
                 this.next();
                 this.symbols.add(
-                    new Namespace(pathElements),
+                    Namespace.of(pathElements),
                     new Symbols.Symbol(
                         Symbols.Symbol.Type.VARIABLE,
-                        true, new Source(start.source, end.source),
+                        true, this.tokens.source(start, end),
                         new Namespace[0],
                         new Symbols.Symbol.Variable(
                             Optional.of(valueType), Optional.empty(),
-                            Optional.empty()
+                            Optional.empty(), Optional.empty()
                         ),
                         Optional.of(externalName),
                         docComment
@@ -165,20 +160,20 @@ public class ExternalMappingsParser extends Parser {
     }
 
     private Supplier<TypeVariable> parseType() throws ErrorException {
-        Token start = this.current;
-        switch(start.type) {
+        int start = this.current;
+        switch(this.tokens.type(start)) {
             case PIPE:
             case DOUBLE_PIPE: {
                 List<Supplier<TypeVariable>> argTypes = new ArrayList<>();
                 List<String> argNames = new ArrayList<>();
-                if(this.current.type == Token.Type.PIPE) {
+                if(this.currentType() == Token.Type.PIPE) {
                     this.next();
-                    while(this.current.type != Token.Type.PIPE) {
+                    while(this.currentType() != Token.Type.PIPE) {
                         Supplier<TypeVariable> argType = this.parseType();
                         argTypes.add(argType);
                         argNames.add("arg" + argNames.size());
                         this.expect(Token.Type.COMMA, Token.Type.PIPE);
-                        if(this.current.type == Token.Type.COMMA) {
+                        if(this.currentType() == Token.Type.COMMA) {
                             this.next();
                         }
                     }
@@ -194,60 +189,61 @@ public class ExternalMappingsParser extends Parser {
                         returnType.get()
                     ),
                     Optional.of(new Source(
-                        start.source, 
+                        this.tokens.source(start), 
                         this.ctx.get(returnType.get()).source.get()
                     ))
                 ));
             }
             case IDENTIFIER:
             case KEYWORD_UNIT: {
-                switch(start.content) {
+                switch(this.tokens.content(start)) {
                     case "unit": {
                         this.next();
                         return () -> this.ctx.makeVar(new DataType<>(
                             DataType.Type.UNIT, null,
-                            Optional.of(start.source)
+                            Optional.of(this.tokens.source(start))
                         ));
                     }
                     case "bool": {
                         this.next();
                         return () -> this.ctx.makeVar(new DataType<>(
                             DataType.Type.BOOLEAN, null,
-                            Optional.of(start.source)
+                            Optional.of(this.tokens.source(start))
                         ));
                     }
                     case "int": {
                         this.next();
                         return () -> this.ctx.makeVar(new DataType<>(
                             DataType.Type.INTEGER, null,
-                            Optional.of(start.source)
+                            Optional.of(this.tokens.source(start))
                         ));
                     }
                     case "float": {
                         this.next();
                         return () -> this.ctx.makeVar(new DataType<>(
                             DataType.Type.FLOAT, null,
-                            Optional.of(start.source)
+                            Optional.of(this.tokens.source(start))
                         ));
                     }
                     case "str": {
                         this.next();
                         return () -> this.ctx.makeVar(new DataType<>(
                             DataType.Type.STRING, null,
-                            Optional.of(start.source)
+                            Optional.of(this.tokens.source(start))
                         ));
                     }
                     default: {
                         this.next();
-                        if(this.declaredTypes.containsKey(start.content)) {
-                            return this.declaredTypes.get(start.content);
+                        String name = this.tokens.content(start);
+                        if(this.declaredTypes.containsKey(name)) {
+                            return this.declaredTypes.get(name);
                         }
                         throw new ErrorException(new Error(
                             "Unknown type name",
                             Error.Marking.error(
-                                start.source, 
+                                this.tokens.source(start), 
                                 "there is no known type with the name '"
-                                    + start.content + "'"
+                                    + name + "'"
                             )
                         ));
                     }
@@ -258,9 +254,9 @@ public class ExternalMappingsParser extends Parser {
                 this.expect(Token.Type.IDENTIFIER);
                 Map<String, Supplier<TypeVariable>> members = new HashMap<>();
                 List<String> order = new ArrayList<>();
-                while(this.current.type != Token.Type.BRACE_CLOSE) {
+                while(this.currentType() != Token.Type.BRACE_CLOSE) {
                     this.expect(Token.Type.IDENTIFIER);
-                    String memberName = this.current.content;
+                    String memberName = this.currentContent();
                     this.next();
                     this.expect(Token.Type.EQUALS);
                     this.next();
@@ -268,11 +264,11 @@ public class ExternalMappingsParser extends Parser {
                     members.put(memberName, memberType);
                     order.add(memberName);
                     this.expect(Token.Type.COMMA, Token.Type.BRACE_CLOSE);
-                    if(this.current.type == Token.Type.COMMA) {
+                    if(this.currentType() == Token.Type.COMMA) {
                         this.next();
                     }
                 }
-                Token end = this.current;
+                int end = this.current;
                 this.next();
                 return () -> {
                     Map<String, TypeVariable> vMembers = new HashMap<>();
@@ -284,7 +280,7 @@ public class ExternalMappingsParser extends Parser {
                         new DataType.UnorderedObject<>(
                             vMembers, false, Optional.of(order) 
                         ),
-                        Optional.of(new Source(start.source, end.source))
+                        Optional.of(this.tokens.source(start, end))
                     ));
                 };
             }
@@ -292,12 +288,12 @@ public class ExternalMappingsParser extends Parser {
                 this.next();
                 Supplier<TypeVariable> elementType = this.parseType();
                 this.expect(Token.Type.BRACKET_CLOSE);
-                Token end = this.current;
+                int end = this.current;
                 this.next();
                 return () -> this.ctx.makeVar(new DataType<>(
                     DataType.Type.ARRAY,
                     new DataType.Array<>(elementType.get()),
-                    Optional.of(new Source(start.source, end.source))
+                    Optional.of(this.tokens.source(start, end))
                 ));
             }
             default: {
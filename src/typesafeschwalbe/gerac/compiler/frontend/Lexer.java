@@ -3,7 +3,7 @@ package typesafeschwalbe.gerac.compiler.frontend;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Optional;
 
 import typesafeschwalbe.gerac.compiler.Source;
 import typesafeschwalbe.gerac.compiler.Error;
@@ -13,30 +13,62 @@ public class Lexer {
     
     private final String fileName;
     private final String fileContent;
+    private final int endPos;
 
-    private int currentPos = 0;
+    private int currentPos;
+
+    // describe the token found by the last call to 'scan'
+    private int tokenStart = 0;
+    private int tokenEnd = 0;
+    private Optional<String> tokenContent = Optional.empty();
 
     public Lexer(String fileName, String fileContent) {
+        this(fileName, fileContent, 0, fileContent.length());
+    }
+
+    // Only lexes the part of the file between the given offsets.
+    // Token locations are still relative to the start of the file.
+    public Lexer(
+        String fileName, String fileContent, int startPos, int endPos
+    ) {
         this.fileName = fileName;
         this.fileContent = fileContent;
+        this.currentPos = startPos;
+        this.endPos = endPos;
+    }
+
+    // character classes of all ASCII characters (no other characters
+    // belong to any class)
+    private static final byte DIGIT = 1;
+    private static final byte LETTER = 2; // includes '_'
+    private static final byte WHITESPACE = 4;
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+    static {
+        for(char c = '0'; c <= '9'; c += 1) { CHAR_CLASSES[c] |= DIGIT; }
+        for(char c = 'A'; c <= 'Z'; c += 1) { CHAR_CLASSES[c] |= LETTER; }
+        for(char c = 'a'; c <= 'z'; c += 1) { CHAR_CLASSES[c] |= LETTER; }
+        CHAR_CLASSES['_'] |= LETTER;
+        CHAR_CLASSES[9] |= WHITESPACE;  // horizontal tab
+        CHAR_CLASSES[10] |= WHITESPACE; // line feed
+        CHAR_CLASSES[13] |= WHITESPACE; // carriage feed
+        CHAR_CLASSES[32] |= WHITESPACE; // space
+    }
+
+    private static boolean hasClass(char c, int charClass) {
+        return c < 128 && (CHAR_CLASSES[c] & charClass) != 0;
     }
 
     public static boolean isDigit(char c) {
-        return '0' <= c && c <= '9';
+        return Lexer.hasClass(c, DIGIT);
     }
 
     public static boolean isAlphanumeral(char c) {
-        return ('0' <= c && c <= '9')
-            || ('A' <= c && c <= 'Z')
-            || ('a' <= c && c <= 'z')
-            || c == '_';
+        return Lexer.hasClass(c, DIGIT | LETTER);
     }
 
     public static boolean isWhitespace(char c) {
-        return c == 9   // horizontal tab
-            || c == 10  // line feed
-            || c == 13  // carriage feed
-            || c == 32; // space
+        return Lexer.hasClass(c, WHITESPACE);
     }
 
     private char current() {
@@ -45,7 +77,7 @@ public class Lexer {
     }
 
     private char peek() {
-        if(this.currentPos + 1 >= this.fileContent.length()) { return '\0'; }
+        if(this.currentPos + 1 >= this.endPos) { return '\0'; }
         return this.fileContent.charAt(this.currentPos + 1);
     }
 
@@ -54,28 +86,98 @@ public class Lexer {
     }
 
     public boolean atEnd() {
-        return this.currentPos >= this.fileContent.length();
+        return this.currentPos >= this.endPos;
     }
 
-    private int find(Function<Character, Boolean> f) {
-        int pos = this.currentPos;
-        while(true) {
-            if(pos >= this.fileContent.length()) { break; }
-            if(f.apply(this.fileContent.charAt(pos))) { break; }
+    private int skipAlphanumerals(int pos) {
+        while(pos < this.endPos
+            && Lexer.isAlphanumeral(this.fileContent.charAt(pos))) {
             pos += 1;
         }
         return pos;
     }
 
-    private Token makeToken(String content, Token.Type type) {
-        return new Token(
-            type,
-            content,
-            new Source(
-                this.fileName, this.currentPos - content.length(),
-                this.currentPos
-            )
+    String fileName() {
+        return this.fileName;
+    }
+
+    String fileContent() {
+        return this.fileContent;
+    }
+
+    int remainingLength() {
+        return this.endPos - this.currentPos;
+    }
+
+    int tokenStart() {
+        return this.tokenStart;
+    }
+
+    int tokenEnd() {
+        return this.tokenEnd;
+    }
+
+    // only present if the content differs from the source text of the token
+    Optional<String> tokenContent() {
+        return this.tokenContent;
+    }
+
+    private Token.Type token(Token.Type type) {
+        this.tokenEnd = this.currentPos;
+        return type;
+    }
+
+    private static final String[] KEYWORDS = {
+        "proc", "case", "val", "mut", "return", "mod", "pub", "use", "true",
+        "false", "else", "unit", "static", "target"
+    };
+    private static final Token.Type[] KEYWORD_TYPES = {
+        Token.Type.KEYWORD_PROCEDURE, Token.Type.KEYWORD_CASE,
+        Token.Type.KEYWORD_VALUE, Token.Type.KEYWORD_MUTABLE,
+        Token.Type.KEYWORD_RETURN, Token.Type.KEYWORD_MODULE,
+        Token.Type.KEYWORD_PUBLIC, Token.Type.KEYWORD_USE,
+        Token.Type.KEYWORD_TRUE, Token.Type.KEYWORD_FALSE,
+        Token.Type.KEYWORD_ELSE, Token.Type.KEYWORD_UNIT,
+        Token.Type.KEYWORD_STATIC, Token.Type.KEYWORD_TARGET
+    };
+
+    // Perfect hash over the keywords, based on their first and last
+    // characters and their length. Each slot holds the index of the only
+    // keyword that may have the hash plus one, or zero if there is none.
+    private static final int KEYWORD_SLOT_MASK = 63;
+    private static final byte[] KEYWORD_SLOTS
+        = new byte[KEYWORD_SLOT_MASK + 1];
+
+    private static int keywordHash(char first, char last, int length) {
+        return (first * 3 + last + length) & KEYWORD_SLOT_MASK;
+    }
+
+    static {
+        for(int keywordI = 0; keywordI < KEYWORDS.length; keywordI += 1) {
+            String keyword = KEYWORDS[keywordI];
+            int slot = Lexer.keywordHash(
+                keyword.charAt(0), keyword.charAt(keyword.length() - 1),
+                keyword.length()
+            );
+            // adding a keyword may require a different hash function
+            if(KEYWORD_SLOTS[slot] != 0) {
+                throw new RuntimeException("keyword hash collision!");
+            }
+            KEYWORD_SLOTS[slot] = (byte) (keywordI + 1);
+        }
+    }
+
+    private Token.Type identifierType(int start, int end) {
+        int slot = Lexer.keywordHash(
+            this.fileContent.charAt(start), this.fileContent.charAt(end - 1),
+            end - start
         );
+        int keywordI = KEYWORD_SLOTS[slot] - 1;
+        if(keywordI < 0) { return Token.Type.IDENTIFIER; }
+        String keyword = KEYWORDS[keywordI];
+        boolean matches = keyword.length() == end - start
+            && this.fileContent.startsWith(keyword, start);
+        return matches? KEYWORD_TYPES[keywordI] : Token.Type.IDENTIFIER;
     }
 
     private byte parseHexDigit() throws ErrorException {
@@ -85,7 +187,7 @@ public class Lexer {
                 Error.Marking.error(
                     new Source(
                         this.fileName,
-                        this.fileContent.length() - 1, this.fileContent.length()
+                        this.endPos - 1, this.endPos
                     ),
                     "expected [0-9], [a-f] or [A-F] here, but file ends instead"
                 )
@@ -105,19 +207,31 @@ public class Lexer {
     }
 
     public Token nextToken() throws ErrorException {
+        Token.Type type = this.scan();
+        String content = this.tokenContent.isPresent()
+            ? this.tokenContent.get()
+            : this.fileContent.substring(this.tokenStart, this.tokenEnd);
+        return new Token(
+            type, content,
+            new Source(this.fileName, this.tokenStart, this.tokenEnd)
+        );
+    }
+
+    // Finds the next token without allocating it. Its location and content
+    // can be retrieved using the 'token'-methods afterwards.
+    Token.Type scan() throws ErrorException {
         while(Lexer.isWhitespace(this.current())) {
             this.next();
         }
-        if(this.currentPos >= this.fileContent.length()) {
-            return new Token(
-                Token.Type.FILE_END, "", new Source(
-                    this.fileName, this.fileContent.length() - 1,
-                    this.fileContent.length()
-                )
-            );
+        this.tokenStart = this.currentPos;
+        this.tokenContent = Optional.empty();
+        if(this.currentPos >= this.endPos) {
+            this.tokenStart = this.endPos - 1;
+            this.tokenEnd = this.endPos;
+            this.tokenContent = Optional.of("");
+            return Token.Type.FILE_END;
         }
         if(Lexer.isDigit(this.current())) {
-            int startPos = this.currentPos;
             boolean isFloat = false;
             while(!this.atEnd() && (
                 Lexer.isDigit(this.current()) || (
@@ -127,11 +241,7 @@ public class Lexer {
                 if(this.current() == '.') { isFloat = true; }
                 this.next();
             }
-            String content = this.fileContent.substring(
-                startPos, this.currentPos
-            );
-            return this.makeToken(
-                content,
+            return this.token(
                 isFloat? Token.Type.FRACTION : Token.Type.INTEGER
             );
         }
@@ -179,57 +289,34 @@ public class Lexer {
                 this.next();
             }
             this.next();
-            return new Token(
-                Token.Type.STRING,
-                content.toString(),
-                new Source(this.fileName, startPos, this.currentPos)
-            );
+            this.tokenContent = Optional.of(content.toString());
+            return this.token(Token.Type.STRING);
         }
         if(Lexer.isAlphanumeral(this.current())) {
-            int endIdx = this.find(c -> !Lexer.isAlphanumeral(c));
-            String content = this.fileContent.substring(
-                this.currentPos, endIdx
-            );
-            Token.Type t;
-            switch(content) {
-                case "proc": t = Token.Type.KEYWORD_PROCEDURE; break;
-                case "case": t = Token.Type.KEYWORD_CASE; break;
-                case "val": t = Token.Type.KEYWORD_VALUE; break;
-                case "mut": t = Token.Type.KEYWORD_MUTABLE; break;
-                case "return": t = Token.Type.KEYWORD_RETURN; break;
-                case "mod": t = Token.Type.KEYWORD_MODULE; break;
-                case "pub": t = Token.Type.KEYWORD_PUBLIC; break;
-                case "use": t = Token.Type.KEYWORD_USE; break;
-                case "true": t = Token.Type.KEYWORD_TRUE; break;
-                case "false": t = Token.Type.KEYWORD_FALSE; break;
-                case "else": t = Token.Type.KEYWORD_ELSE; break;
-                case "unit": t = Token.Type.KEYWORD_UNIT; break;
-                case "static": t = Token.Type.KEYWORD_STATIC; break;
-                case "target": t = Token.Type.KEYWORD_TARGET; break;
-                default: t = Token.Type.IDENTIFIER;
-            }
-            this.currentPos += content.length();
-            return this.makeToken(content, t);
+            int endIdx = this.skipAlphanumerals(this.currentPos);
+            Token.Type t = this.identifierType(this.currentPos, endIdx);
+            this.currentPos = endIdx;
+            return this.token(t);
         }
         switch(this.current()) {
             case '|':
                 this.next();
                 if(this.current() == '|') {
                     this.next();
-                    return this.makeToken("||", Token.Type.DOUBLE_PIPE);
+                    return this.token(Token.Type.DOUBLE_PIPE);
                 } else if(this.current() == '>') {
                     this.next();
-                    return this.makeToken("|>", Token.Type.FUNCTION_PIPE);
+                    return this.token(Token.Type.FUNCTION_PIPE);
                 } else {
-                    return this.makeToken("|", Token.Type.PIPE);
+                    return this.token(Token.Type.PIPE);
                 }
             case '=':
                 this.next();
                 if(this.current() == '=') {
                     this.next();
-                    return this.makeToken("==", Token.Type.DOUBLE_EQUALS);
+                    return this.token(Token.Type.DOUBLE_EQUALS);
                 } else {
-                    return this.makeToken("=", Token.Type.EQUALS);
+                    return this.token(Token.Type.EQUALS);
                 }
             case '.':
                 this.next();
@@ -237,34 +324,31 @@ public class Lexer {
                     this.next();
                     if(this.current() == '=') {
                         this.next();
-                        return this.makeToken(
-                            "..=", Token.Type.DOUBLE_DOT_EQUALS
-                        );
+                        return this.token(Token.Type.DOUBLE_DOT_EQUALS);
                     } else {
-                        return this.makeToken("..", Token.Type.DOUBLE_DOT);
+                        return this.token(Token.Type.DOUBLE_DOT);
                     }
                 } else if(this.current() == '>') {
                     this.next();
-                    return this.makeToken(".>", Token.Type.MEMBER_PIPE);
+                    return this.token(Token.Type.MEMBER_PIPE);
                 } else {
-                    return this.makeToken(".", Token.Type.DOT);
+                    return this.token(Token.Type.DOT);
                 }
             case '+':
                 this.next();
-                return this.makeToken("+", Token.Type.PLUS);
+                return this.token(Token.Type.PLUS);
             case '-':
                 this.next();
                 if(this.current() == '>') {
                     this.next();
-                    return this.makeToken("->", Token.Type.ARROW);
+                    return this.token(Token.Type.ARROW);
                 } else {
-                    return this.makeToken("-", Token.Type.MINUS);
+                    return this.token(Token.Type.MINUS);
                 }
             case '*':
                 this.next();
-                return this.makeToken("*", Token.Type.ASTERISK);
+                return this.token(Token.Type.ASTERISK);
             case '/':
-                int startPos = this.currentPos;
                 this.next();
                 if(this.current() == '/') {
                     this.next();
@@ -290,16 +374,17 @@ public class Lexer {
                                 this.next();
                             }
                             boolean lineIsDocComment = this.fileContent
-                                .substring(this.currentPos).startsWith("///");
+                                .startsWith("///", this.currentPos);
                             if(lineIsDocComment) {
                                 this.currentPos += 3;
                             } else {
                                 break;
                             }
                         }
-                        return this.makeToken(
-                            String.join(" ", lines), Token.Type.DOC_COMMENT
-                        );
+                        String content = String.join(" ", lines);
+                        this.tokenContent = Optional.of(content);
+                        this.tokenStart = this.currentPos - content.length();
+                        return this.token(Token.Type.DOC_COMMENT);
                     } else {
                         while(!this.atEnd()) {
                             char c = this.current();
@@ -312,85 +397,82 @@ public class Lexer {
                             }
                             this.next();
                         }
-                        String content = this.fileContent.substring(
-                            startPos, this.currentPos
-                        );
-                        return this.makeToken(content, Token.Type.COMMENT);
+                        return this.token(Token.Type.COMMENT);
                     }
                 } else {
-                    return this.makeToken("/", Token.Type.SLASH);
+                    return this.token(Token.Type.SLASH);
                 }
             case '%':
                 this.next();
-                return this.makeToken("%", Token.Type.PERCENT);
+                return this.token(Token.Type.PERCENT);
             case '<':
                 this.next();
                 if(this.current() == '=') {
                     this.next();
-                    return this.makeToken("<=", Token.Type.LESS_THAN_EQUAL);
+                    return this.token(Token.Type.LESS_THAN_EQUAL);
                 } else {
-                    return this.makeToken("<", Token.Type.LESS_THAN);
+                    return this.token(Token.Type.LESS_THAN);
                 }
             case '>':
                 this.next();
                 if(this.current() == '=') {
                     this.next();
-                    return this.makeToken(">=", Token.Type.GREATER_THAN_EQUAL);
+                    return this.token(Token.Type.GREATER_THAN_EQUAL);
                 } else {
-                    return this.makeToken(">", Token.Type.GREATER_THAN);
+                    return this.token(Token.Type.GREATER_THAN);
                 }
             case '!':
                 this.next();
                 if(this.current() == '=') {
                     this.next();
-                    return this.makeToken("!=", Token.Type.NOT_EQUALS);
+                    return this.token(Token.Type.NOT_EQUALS);
                 } else {
-                    return this.makeToken("!", Token.Type.EXCLAMATION_MARK);
+                    return this.token(Token.Type.EXCLAMATION_MARK);
                 }
             case '?':
                 this.next();
-                return this.makeToken("?", Token.Type.QUESTION_MARK);
+                return this.token(Token.Type.QUESTION_MARK);
             case '&':
                 if(this.peek() == '&') {
                     this.next();
                     this.next();
-                    return this.makeToken("&&", Token.Type.DOUBLE_AMPERSAND);
+                    return this.token(Token.Type.DOUBLE_AMPERSAND);
                 }
                 break;
             case ':':
                 if(this.peek() == ':') {
                     this.next();
                     this.next();
-                    return this.makeToken("::", Token.Type.DOUBLE_COLON);
+                    return this.token(Token.Type.DOUBLE_COLON);
                 }
                 break;
             case ';':
                 this.next();
-                return this.makeToken(";", Token.Type.SEMICOLON);
+                return this.token(Token.Type.SEMICOLON);
             case '#':
                 this.next();
-                return this.makeToken("#", Token.Type.HASHTAG);
+                return this.token(Token.Type.HASHTAG);
             case ',':
                 this.next();
-                return this.makeToken(",", Token.Type.COMMA);
+                return this.token(Token.Type.COMMA);
             case '(':
                 this.next();
-                return this.makeToken("(", Token.Type.PAREN_OPEN);
+                return this.token(Token.Type.PAREN_OPEN);
             case ')':
                 this.next();
-                return this.makeToken(")", Token.Type.PAREN_CLOSE);
+                return this.token(Token.Type.PAREN_CLOSE);
             case '[':
                 this.next();
-                return this.makeToken("[", Token.Type.BRACKET_OPEN);
+                return this.token(Token.Type.BRACKET_OPEN);
             case ']':
                 this.next();
-                return this.makeToken("]", Token.Type.BRACKET_CLOSE);
+                return this.token(Token.Type.BRACKET_CLOSE);
             case '{':
                 this.next();
-                return this.makeToken("{", Token.Type.BRACE_OPEN);
+                return this.token(Token.Type.BRACE_OPEN);
             case '}':
                 this.next();
-                return this.makeToken("}", Token.Type.BRACE_CLOSE);
+                return this.token(Token.Type.BRACE_CLOSE);
         }
         throw new ErrorException(new Error(
             "Invalid character",
@@ -0,0 +1,210 @@
+
+package typesafeschwalbe.gerac.compiler.frontend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import typesafeschwalbe.gerac.compiler.ErrorException;
+
+// Determines which modules each source file declares and which modules it
+// may reference, based only on the tokens of the file. This makes it possible
+// to find the files needed by a main procedure without parsing every file.
+// The referenced modules are over-approximated - any path that could refer
+// to a module after expanding usages is assumed to do so.
+public class ModuleIndex {
+
+    // module paths are kept as plain lists, since most referenced paths
+    // don't actually exist and shouldn't be interned
+    private static record FileIndex(
+        Set<List<String>> declared, Set<List<String>> referenced
+    ) {}
+
+    private final Map<String, Optional<FileIndex>> files;
+
+    public ModuleIndex(Map<String, String> files) {
+        this.files = new HashMap<>();
+        files.keySet().parallelStream()
+            .filter(fileName -> fileName.endsWith(".gera"))
+            .map(fileName -> Map.entry(
+                fileName, ModuleIndex.index(fileName, files.get(fileName))
+            ))
+            .toList()
+            .forEach(entry -> this.files.put(entry.getKey(), entry.getValue()));
+    }
+
+    // Returns all indexed files that may be needed by the given module.
+    // Files that couldn't be indexed are always included, so that their
+    // errors are still reported when they get parsed.
+    public Set<String> reachableFiles(List<String> module) {
+        Map<List<String>, List<String>> declaringFiles = new HashMap<>();
+        Set<String> reachable = new HashSet<>();
+        for(String fileName: this.files.keySet()) {
+            Optional<FileIndex> index = this.files.get(fileName);
+            if(index.isEmpty() || index.get().declared.size() == 0) {
+                reachable.add(fileName);
+                continue;
+            }
+            for(List<String> declared: index.get().declared) {
+                declaringFiles
+                    .computeIfAbsent(declared, m -> new ArrayList<>())
+                    .add(fileName);
+            }
+        }
+        Set<List<String>> reachedModules = new HashSet<>();
+        LinkedList<List<String>> pending = new LinkedList<>();
+        pending.add(module);
+        for(String fileName: reachable) {
+            this.files.get(fileName).ifPresent(
+                index -> pending.addAll(index.referenced)
+            );
+        }
+        while(pending.size() > 0) {
+            List<String> reached = pending.pop();
+            if(!reachedModules.add(reached)) { continue; }
+            for(String fileName: declaringFiles.getOrDefault(
+                reached, List.of()
+            )) {
+                if(!reachable.add(fileName)) { continue; }
+                pending.addAll(this.files.get(fileName).get().referenced);
+            }
+        }
+        return reachable;
+    }
+
+    private static Optional<FileIndex> index(
+        String fileName, String fileContent
+    ) {
+        TokenBuffer buffer = TokenBuffer.of(new Lexer(fileName, fileContent));
+        // parsing would fail before reaching a lexing error
+        try {
+            buffer.check(buffer.size());
+        } catch(ErrorException e) {
+            return Optional.empty();
+        }
+        // indices of all tokens except for comments and the end of the file
+        int[] tokens = new int[buffer.size()];
+        int tokenC = 0;
+        for(int tokenI = 0; tokenI < buffer.size(); tokenI += 1) {
+            Token.Type type = buffer.type(tokenI);
+            if(type == Token.Type.FILE_END) { continue; }
+            if(type == Token.Type.COMMENT) { continue; }
+            if(type == Token.Type.DOC_COMMENT) { continue; }
+            tokens[tokenC] = tokenI;
+            tokenC += 1;
+        }
+        tokens = Arrays.copyOf(tokens, tokenC);
+        Set<List<String>> declared = new HashSet<>();
+        List<List<String>> usages = new ArrayList<>();
+        usages.add(List.of("core", "*"));
+        List<List<String>> paths = new ArrayList<>();
+        for(int tokenI = 0; tokenI < tokens.length;) {
+            Token.Type type = buffer.type(tokens[tokenI]);
+            if(type == Token.Type.KEYWORD_MODULE) {
+                List<String> path = new ArrayList<>();
+                tokenI = ModuleIndex.readPath(buffer, tokens, tokenI + 1, path);
+                if(path.size() == 0) { return Optional.empty(); }
+                declared.add(path);
+            } else if(type == Token.Type.KEYWORD_USE) {
+                tokenI = ModuleIndex.readUsages(
+                    buffer, tokens, tokenI + 1, List.of(), usages
+                );
+            } else if(type == Token.Type.IDENTIFIER) {
+                List<String> path = new ArrayList<>();
+                tokenI = ModuleIndex.readPath(buffer, tokens, tokenI, path);
+                if(path.size() > 1) { paths.add(path); }
+            } else {
+                tokenI += 1;
+            }
+        }
+        Set<List<String>> referenced = new HashSet<>();
+        for(List<String> usage: usages) {
+            ModuleIndex.addPrefixes(usage, referenced);
+        }
+        for(List<String> path: paths) {
+            ModuleIndex.addPrefixes(path, referenced);
+            for(List<String> usage: usages) {
+                String last = usage.get(usage.size() - 1);
+                if(!last.equals("*") && !last.equals(path.get(0))) {
+                    continue;
+                }
+                List<String> expanded = new ArrayList<>(
+                    usage.subList(0, usage.size() - 1)
+                );
+                expanded.addAll(path);
+                ModuleIndex.addPrefixes(expanded, referenced);
+            }
+        }
+        return Optional.of(new FileIndex(declared, referenced));
+    }
+
+    private static void addPrefixes(
+        List<String> path, Set<List<String>> prefixes
+    ) {
+        for(int length = 1; length <= path.size(); length += 1) {
+            List<String> prefix = path.subList(0, length);
+            if(prefix.get(length - 1).equals("*")) { break; }
+            prefixes.add(List.copyOf(prefix));
+        }
+    }
+
+    private static int readPath(
+        TokenBuffer buffer, int[] tokens, int tokenI, List<String> path
+    ) {
+        while(tokenI < tokens.length
+            && buffer.type(tokens[tokenI]) == Token.Type.IDENTIFIER) {
+            path.add(buffer.content(tokens[tokenI]));
+            tokenI += 1;
+            if(tokenI >= tokens.length
+                || buffer.type(tokens[tokenI]) != Token.Type.DOUBLE_COLON) {
+                break;
+            }
+            tokenI += 1;
+        }
+        return tokenI;
+    }
+
+    // mirrors 'SourceParser.parseUsages', but never fails
+    private static int readUsages(
+        TokenBuffer buffer, int[] tokens, int tokenI, List<String> prefix,
+        List<List<String>> usages
+    ) {
+        List<String> path = new ArrayList<>(prefix);
+        tokenI = ModuleIndex.readPath(buffer, tokens, tokenI, path);
+        if(tokenI >= tokens.length) {
+            if(path.size() > prefix.size()) { usages.add(path); }
+            return tokenI;
+        }
+        Token.Type type = buffer.type(tokens[tokenI]);
+        if(type == Token.Type.ASTERISK) {
+            path.add("*");
+            usages.add(path);
+            return tokenI + 1;
+        }
+        if(type != Token.Type.PAREN_OPEN) {
+            if(path.size() > prefix.size()) { usages.add(path); }
+            return tokenI;
+        }
+        tokenI += 1;
+        while(tokenI < tokens.length
+            && buffer.type(tokens[tokenI]) != Token.Type.PAREN_CLOSE) {
+            int startI = tokenI;
+            tokenI = ModuleIndex.readUsages(
+                buffer, tokens, tokenI, path, usages
+            );
+            if(tokenI < tokens.length
+                && buffer.type(tokens[tokenI]) == Token.Type.COMMA) {
+                tokenI += 1;
+            }
+            if(tokenI == startI) { return tokenI; }
+        }
+        return tokenI + 1;
+    }
+
+}
@@ -1,9 +1,106 @@
 
 package typesafeschwalbe.gerac.compiler.frontend;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
-public record Namespace(List<String> elements) {
+// Paths are interned, meaning that there is only ever one instance for each
+// path. They can therefore be compared by identity, and each one has a
+// unique id that can be used as an index into arrays.
+// The intern table only holds weak references, so that paths are dropped
+// once nothing uses them anymore (for example after a compilation in daemon
+// or watch mode). The ids of dropped paths are then handed out again,
+// which keeps them as small as the number of paths in use.
+public final class Namespace {
+
+    private static class Interned extends WeakReference<Namespace> {
+        private final List<String> elements;
+        private final int id;
+
+        private Interned(Namespace namespace) {
+            super(namespace, Namespace.collected);
+            this.elements = namespace.elements;
+            this.id = namespace.id;
+        }
+    }
+
+    private static final Map<List<String>, Interned> interned
+        = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Namespace> collected
+        = new ReferenceQueue<>();
+    // only accessed while holding the lock of 'interned' -
+    // the smallest free ids are handed out first
+    private static final PriorityQueue<Integer> freeIds
+        = new PriorityQueue<>();
+    private static int nextId = 0;
+
+    private final List<String> elements;
+    private final int hash;
+    private final int id;
+
+    private Namespace(List<String> elements, int id) {
+        this.elements = elements;
+        this.hash = elements.hashCode();
+        this.id = id;
+    }
+
+    public static Namespace of(List<String> elements) {
+        Optional<Namespace> existing = Namespace.find(elements);
+        if(existing.isPresent()) { return existing.get(); }
+        synchronized(Namespace.interned) {
+            Namespace.dropCollected();
+            existing = Namespace.find(elements);
+            if(existing.isPresent()) { return existing.get(); }
+            Integer freeId = Namespace.freeIds.poll();
+            int id = freeId != null? freeId : Namespace.nextId++;
+            Namespace created = new Namespace(List.copyOf(elements), id);
+            Namespace.interned.put(created.elements, new Interned(created));
+            return created;
+        }
+    }
+
+    // Returns the instance for the given path if there already is one.
+    // Unlike 'of', this never creates a new instance, which makes it
+    // suitable for checking if a path is known at all.
+    public static Optional<Namespace> find(List<String> elements) {
+        Interned reference = Namespace.interned.get(elements);
+        if(reference == null) { return Optional.empty(); }
+        return Optional.ofNullable(reference.get());
+    }
+
+    private static void dropCollected() {
+        Reference<? extends Namespace> reference;
+        while((reference = Namespace.collected.poll()) != null) {
+            Interned dropped = (Interned) reference;
+            // the path may already have been interned again
+            Namespace.interned.remove(dropped.elements, dropped);
+            Namespace.freeIds.add(dropped.id);
+        }
+    }
+
+    public List<String> elements() {
+        return this.elements;
+    }
+
+    public int id() {
+        return this.id;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,548 @@
+
+package typesafeschwalbe.gerac.compiler.frontend;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import typesafeschwalbe.gerac.compiler.ErrorException;
+import typesafeschwalbe.gerac.compiler.Target;
+
+public class ParseCache {
+
+    private static record Key(String fileName, Target target) {}
+
+    // Trees are only stored in serialized form. The solver annotates the
+    // nodes it processes, so each compilation needs its own copy anyway.
+    // Each top-level declaration is stored separately, so that unchanged
+    // declarations can be reused once the file is modified. Reused
+    // declarations keep their serialized form, meaning that the offsets
+    // stored in it need to be moved by 'offsetShift'.
+    private static record Declaration(
+        int start, int end, int offsetShift, byte[] serialized
+    ) {}
+
+    private static record Entry(
+        String content, List<Declaration> declarations
+    ) {}
+
+    private static record ContentHash(String content, byte[] hash) {}
+
+    private static record Chunk(int start, int end, List<AstNode> nodes) {}
+
+    private static final int MAGIC = 0x47455243; // 'GERC'
+    // files are only parsed in parallel if they can be split
+    // into at least two parts of roughly this many characters
+    private static final int CHUNK_LENGTH = 32768;
+
+    private final Map<Key, Entry> entries;
+    private final Map<String, ContentHash> contentHashes;
+    private final Optional<Path> directory;
+
+    public ParseCache() {
+        this.entries = new ConcurrentHashMap<>();
+        this.contentHashes = new ConcurrentHashMap<>();
+        this.directory = Optional.empty();
+    }
+
+    private ParseCache(
+        Map<Key, Entry> entries, Map<String, ContentHash> contentHashes,
+        Optional<Path> directory
+    ) {
+        this.entries = entries;
+        this.contentHashes = contentHashes;
+        this.directory = directory;
+    }
+
+    // The returned cache shares all in-memory entries with this one,
+    // but additionally stores parsed files in the given directory.
+    public ParseCache withDirectory(Optional<Path> directory) {
+        if(directory.equals(this.directory)) {
+            return this;
+        }
+        return new ParseCache(this.entries, this.contentHashes, directory);
+    }
+
+    // Makes the cache use the given SHA-256 hash (for example computed while
+    // reading the file) instead of hashing the content itself. The hash is
+    // only used as long as the exact same string is passed for the file.
+    public void addContentHash(
+        String fileName, String content, byte[] contentHash
+    ) {
+        this.contentHashes.put(
+            fileName, new ContentHash(content, contentHash)
+        );
+    }
+
+    public Optional<List<AstNode>> get(
+        String fileName, String content, Target target
+    ) {
+        Key key = new Key(fileName, target);
+        Entry entry = this.entries.get(key);
+        if(entry != null && entry.content.equals(content)) {
+            return ParseCache.deserialize(entry, fileName, target);
+        }
+        if(this.directory.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<byte[]> serialized = this.readFromDisk(
+            fileName, content, target
+        );
+        if(serialized.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<Entry> read = ParseCache.readEntry(serialized.get(), content);
+        if(read.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<List<AstNode>> nodes = ParseCache.deserialize(
+            read.get(), fileName, target
+        );
+        if(nodes.isPresent()) {
+            this.entries.put(key, read.get());
+        }
+        return nodes;
+    }
+
+    // Parses the given file and puts it into the cache. If an older version
+    // of the file is cached, declarations whose text hasn't changed are
+    // taken from it instead of being parsed again.
+    public List<AstNode> parse(
+        String fileName, String content, Target target
+    ) throws ErrorException {
+        Key key = new Key(fileName, target);
+        Entry previous = this.entries.get(key);
+        if(previous != null) {
+            Optional<List<AstNode>> reparsed = this.reparse(
+                key, previous, content
+            );
+            if(reparsed.isPresent()) {
+                return reparsed.get();
+            }
+        }
+        Optional<List<Chunk>> chunks = ParseCache.parseChunks(
+            fileName, content, target
+        );
+        if(chunks.isPresent()) {
+            List<AstNode> nodes = new ArrayList<>();
+            List<Declaration> declarations = new ArrayList<>();
+            for(Chunk chunk: chunks.get()) {
+                nodes.addAll(chunk.nodes);
+                declarations.add(new Declaration(
+                    chunk.start, chunk.end, 0,
+                    ParseCache.serialize(chunk.nodes)
+                ));
+            }
+            this.put(key, new Entry(content, declarations));
+            return nodes;
+        }
+        // smaller files are only split into declarations once they're modified
+        List<AstNode> nodes = new SourceParser(
+            new Lexer(fileName, content), target
+        ).parseGlobalStatements();
+        this.put(key, new Entry(
+            content,
+            List.of(new Declaration(
+                0, content.length(), 0, ParseCache.serialize(nodes)
+            ))
+        ));
+        return nodes;
+    }
+
+    // Parses the top-level declarations of a large file in multiple parts
+    // at the same time. Returns nothing if the file is too small or can't
+    // be split, or if any part has an error, since the whole file then
+    // needs to be parsed for the first error to be the one reported.
+    private static Optional<List<Chunk>> parseChunks(
+        String fileName, String content, Target target
+    ) {
+        // splitting the file only pays off if the parts
+        // can actually be parsed at the same time
+        if(content.length() < CHUNK_LENGTH * 2
+            || Runtime.getRuntime().availableProcessors() < 2) {
+            return Optional.empty();
+        }
+        Optional<DeclarationIndex> index = DeclarationIndex.of(content);
+        if(index.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        for(int declI = 0; declI < index.get().size(); declI += 1) {
+            int end = index.get().end(declI);
+            if(end - bounds.get(bounds.size() - 1) >= CHUNK_LENGTH) {
+                bounds.add(end);
+            }
+        }
+        if(bounds.get(bounds.size() - 1) != content.length()) {
+            bounds.add(content.length());
+        }
+        if(bounds.size() <= 2) {
+            return Optional.empty();
+        }
+        List<Optional<Chunk>> chunks = IntStream.range(0, bounds.size() - 1)
+            .parallel()
+            .mapToObj(chunkI -> {
+                int start = bounds.get(chunkI);
+                int end = bounds.get(chunkI + 1);
+                try {
+                    return Optional.of(new Chunk(
+                        start, end,
+                        new SourceParser(
+                            new Lexer(fileName, content, start, end), target
+                        ).parseGlobalStatements()
+                    ));
+                } catch(ErrorException e) {
+                    return Optional.<Chunk>empty();
+                }
+            })
+            .toList();
+        List<Chunk> parsed = new ArrayList<>();
+        for(Optional<Chunk> chunk: chunks) {
+            if(chunk.isEmpty()) { return Optional.empty(); }
+            parsed.add(chunk.get());
+        }
+        return Optional.of(parsed);
+    }
+
+    // Only parses the declarations between the unchanged start and the
+    // unchanged end of the file. Returns nothing if that isn't possible,
+    // in which case the whole file needs to be parsed.
+    private Optional<List<AstNode>> reparse(
+        Key key, Entry previous, String content
+    ) {
+        String oldContent = previous.content;
+        List<Declaration> oldDecls = previous.declarations;
+        int maxCommon = Math.min(oldContent.length(), content.length());
+        int prefix = 0;
+        while(prefix < maxCommon
+            && oldContent.charAt(prefix) == content.charAt(prefix)) {
+            prefix += 1;
+        }
+        int suffix = 0;
+        while(suffix < maxCommon - prefix
+            && oldContent.charAt(oldContent.length() - 1 - suffix)
+                == content.charAt(content.length() - 1 - suffix)) {
+            suffix += 1;
+        }
+        int shift = content.length() - oldContent.length();
+        // the lexer may look one character past the end of a declaration
+        int firstChanged = 0;
+        while(firstChanged < oldDecls.size()
+            && oldDecls.get(firstChanged).end + 1 < prefix) {
+            firstChanged += 1;
+        }
+        // declarations that start with whitespace can't be affected
+        // by changes in front of them
+        int firstUnchanged = oldDecls.size();
+        while(firstUnchanged > firstChanged) {
+            Declaration declaration = oldDecls.get(firstUnchanged - 1);
+            boolean isUnchanged = declaration.start
+                    >= oldContent.length() - suffix
+                && declaration.start < declaration.end
+                && Lexer.isWhitespace(oldContent.charAt(declaration.start));
+            if(!isUnchanged) { break; }
+            firstUnchanged -= 1;
+        }
+        int rangeStart = oldDecls.get(firstChanged).start;
+        int rangeEnd = firstUnchanged < oldDecls.size()
+            ? oldDecls.get(firstUnchanged).start + shift
+            : content.length();
+        if(rangeEnd < rangeStart) {
+            return Optional.empty();
+        }
+        Optional<DeclarationIndex> index = DeclarationIndex.of(
+            content, rangeStart, rangeEnd
+        );
+        if(index.isEmpty()) {
+            return Optional.empty();
+        }
+        List<AstNode> changedNodes;
+        try {
+            changedNodes = new SourceParser(
+                new Lexer(key.fileName, content, rangeStart, rangeEnd),
+                key.target
+            ).parseGlobalStatements();
+        } catch(ErrorException e) {
+            // errors need to be reported just like when parsing
+            // the whole file, which might also find a different one
+            return Optional.empty();
+        }
+        List<AstNode> nodes = new ArrayList<>();
+        List<Declaration> declarations = new ArrayList<>();
+        try {
+            for(int declI = 0; declI < firstChanged; declI += 1) {
+                Declaration declaration = oldDecls.get(declI);
+                nodes.addAll(ParseCache.deserialize(
+                    declaration.serialized, key.fileName, content,
+                    key.target, declaration.offsetShift
+                ));
+                declarations.add(declaration);
+            }
+            int nodeI = 0;
+            for(int declI = 0; declI < index.get().size(); declI += 1) {
+                int end = index.get().end(declI);
+                int firstNodeI = nodeI;
+                while(nodeI < changedNodes.size()
+                    && changedNodes.get(nodeI).source.startOffset() < end) {
+                    nodeI += 1;
+                }
+                declarations.add(new Declaration(
+                    index.get().start(declI), end, 0,
+                    ParseCache.serialize(
+                        changedNodes.subList(firstNodeI, nodeI)
+                    )
+                ));
+            }
+            nodes.addAll(changedNodes);
+            for(
+                int declI = firstUnchanged; declI < oldDecls.size();
+                declI += 1
+            ) {
+                Declaration declaration = oldDecls.get(declI);
+                nodes.addAll(ParseCache.deserialize(
+                    declaration.serialized, key.fileName, content,
+                    key.target, declaration.offsetShift + shift
+                ));
+                declarations.add(new Declaration(
+                    declaration.start + shift, declaration.end + shift,
+                    declaration.offsetShift + shift, declaration.serialized
+                ));
+            }
+        } catch(IOException e) {
+            throw new RuntimeException("should not be encountered!");
+        }
+        this.put(key, new Entry(content, declarations));
+        return Optional.of(nodes);
+    }
+
+    private void put(Key key, Entry entry) {
+        // only the most recent version of each file is kept
+        this.entries.put(key, entry);
+        if(this.directory.isPresent()) {
+            this.writeToDisk(
+                key.fileName, entry.content, key.target,
+                ParseCache.writeEntry(entry)
+            );
+        }
+    }
+
+    private static byte[] serialize(List<AstNode> nodes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            new AstSerializer.Writer(out).writeNodes(nodes);
+        } catch(IOException e) {
+            throw new RuntimeException("should not be encountered!");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<AstNode> deserialize(
+        byte[] serialized, String fileName, String content, Target target,
+        int offsetShift
+    ) throws IOException {
+        try(DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(serialized)
+        )) {
+            return new AstSerializer.Reader(
+                in, fileName, content, target, offsetShift
+            ).readNodes();
+        }
+    }
+
+    private static Optional<List<AstNode>> deserialize(
+        Entry entry, String fileName, Target target
+    ) {
+        List<AstNode> nodes = new ArrayList<>();
+        try {
+            for(Declaration declaration: entry.declarations) {
+                nodes.addAll(ParseCache.deserialize(
+                    declaration.serialized, fileName, entry.content, target,
+                    declaration.offsetShift
+                ));
+            }
+        } catch(IOException | RuntimeException e) {
+            // a broken cache entry is simply treated as missing
+            return Optional.empty();
+        }
+        return Optional.of(nodes);
+    }
+
+    private static byte[] writeEntry(Entry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(AstSerializer.FORMAT_VERSION);
+            out.writeInt(entry.declarations.size());
+            for(Declaration declaration: entry.declarations) {
+                out.writeInt(declaration.start);
+                out.writeInt(declaration.end);
+                out.writeInt(declaration.offsetShift);
+                out.writeInt(declaration.serialized.length);
+                out.write(declaration.serialized);
+            }
+        } catch(IOException e) {
+            throw new RuntimeException("should not be encountered!");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Optional<Entry> readEntry(
+        byte[] serialized, String content
+    ) {
+        try(DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(serialized)
+        )) {
+            if(in.readInt() != MAGIC) { return Optional.empty(); }
+            if(in.readInt() != AstSerializer.FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            int declarationC = in.readInt();
+            List<Declaration> declarations = new ArrayList<>();
+            for(int declI = 0; declI < declarationC; declI += 1) {
+                int start = in.readInt();
+                int end = in.readInt();
+                int offsetShift = in.readInt();
+                if(start < 0 || end > content.length() || start > end) {
+                    return Optional.empty();
+                }
+                byte[] nodes = new byte[in.readInt()];
+                in.readFully(nodes);
+                declarations.add(new Declaration(
+                    start, end, offsetShift, nodes
+                ));
+            }
+            return Optional.of(new Entry(content, declarations));
+        } catch(IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Optional<byte[]> readFromDisk(
+        String fileName, String content, Target target
+    ) {
+        Path file = this.diskPath(fileName, content, target);
+        if(!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Files.readAllBytes(file));
+        } catch(IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void writeToDisk(
+        String fileName, String content, Target target, byte[] serialized
+    ) {
+        Path file = this.diskPath(fileName, content, target);
+        try {
+            Files.createDirectories(file.getParent());
+            // write to a temporary file first so that concurrent compilations
+            // never observe a partially written entry
+            Path temp = Files.createTempFile(file.getParent(), "tmp-", ".tmp");
+            Files.write(temp, serialized);
+            Files.move(
+                temp, file,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+            );
+        } catch(IOException e) {
+            // the cache is only an optimization - failing to write is fine
+        }
+    }
+
+    private Path diskPath(String fileName, String content, Target target) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        ContentHash known = this.contentHashes.get(fileName);
+        byte[] contentHash = known != null && known.content == content
+            ? known.hash
+            : digest.digest(content.getBytes(StandardCharsets.UTF_8));
+        String key = String.join("\n",
+            ParseCache.compilerVersion(),
+            String.valueOf(AstSerializer.FORMAT_VERSION),
+            target.targetName,
+            fileName,
+            HexFormat.of().formatHex(contentHash)
+        );
+        String name = HexFormat.of().formatHex(
+            digest.digest(key.getBytes(StandardCharsets.UTF_8))
+        );
+        return this.directory.get().resolve(name + ".ast");
+    }
+
+    private static String compilerVersion = null;
+
+    // There is no explicit version number, so a hash of the compiler's own
+    // jar (or of all class files in its class directory) is used instead.
+    // Modification times can't be used, since overwriting the class files
+    // doesn't change the modification time of their directory.
+    private static synchronized String compilerVersion() {
+        if(ParseCache.compilerVersion != null) {
+            return ParseCache.compilerVersion;
+        }
+        String version = "unknown";
+        try {
+            CodeSource codeSource = ParseCache.class
+                .getProtectionDomain().getCodeSource();
+            if(codeSource != null) {
+                Path location = Paths.get(codeSource.getLocation().toURI());
+                version = HexFormat.of().formatHex(
+                    ParseCache.hashCode(location)
+                );
+            }
+        } catch(Exception e) {
+            // keep 'unknown'
+        }
+        ParseCache.compilerVersion = version;
+        return version;
+    }
+
+    private static byte[] hashCode(
+        Path location
+    ) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        if(!Files.isDirectory(location)) {
+            return digest.digest(Files.readAllBytes(location));
+        }
+        List<Path> classFiles;
+        try(Stream<Path> files = Files.walk(location)) {
+            classFiles = files
+                .filter(file -> file.toString().endsWith(".class"))
+                .sorted()
+                .toList();
+        }
+        for(Path classFile: classFiles) {
+            digest.update(
+                location.relativize(classFile).toString()
+                    .getBytes(StandardCharsets.UTF_8)
+            );
+            digest.update(Files.readAllBytes(classFile));
+        }
+        return digest.digest();
+    }
+
+}
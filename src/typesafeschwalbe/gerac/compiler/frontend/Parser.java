@@ -1,47 +1,73 @@
 
 package typesafeschwalbe.gerac.compiler.frontend;
 
-import java.util.List;
 import java.util.Optional;
 
 import typesafeschwalbe.gerac.compiler.Error;
 import typesafeschwalbe.gerac.compiler.ErrorException;
+import typesafeschwalbe.gerac.compiler.Source;
 
 public abstract class Parser {
 
-    private final Lexer lexer;
-    protected Token current;
-    protected Optional<Token> last_filtered;
+    protected static final int NONE = -1;
+
+    protected final TokenBuffer tokens;
+    protected int current; // index of the current token
+    private int lastFiltered;
 
     public Parser(Lexer lexer) throws ErrorException {
-        this.lexer = lexer;
+        this.tokens = TokenBuffer.of(lexer);
+        this.current = NONE;
         this.next();
     }
+
+    protected Token.Type currentType() {
+        return this.tokens.type(this.current);
+    }
+
+    protected String currentContent() {
+        return this.tokens.content(this.current);
+    }
+
+    protected Source currentSource() {
+        return this.tokens.source(this.current);
+    }
     
     protected void throwUnexpected(String expected) throws ErrorException {
         throw new ErrorException(new Error(
             "Unexpected syntax",
             Error.Marking.error(
-                this.current.source,
+                this.currentSource(),
                 "expected " + expected + ", but " + (
-                    this.current.type == Token.Type.FILE_END
+                    this.currentType() == Token.Type.FILE_END
                         ? "reached the end of the file"
-                        : "got '" + this.current.content + "' instead"
+                        : "got '" + this.currentContent() + "' instead"
                 )
             )
         ));
     }
 
-    private static final List<Token.Type> filtered = List.of(
-        Token.Type.COMMENT, Token.Type.DOC_COMMENT
-    );
+    // Returns the content of the doc comment directly before the current
+    // token, if there is one.
+    protected Optional<String> docComment() {
+        if(this.lastFiltered == NONE) { return Optional.empty(); }
+        if(this.tokens.type(this.lastFiltered) != Token.Type.DOC_COMMENT) {
+            return Optional.empty();
+        }
+        return Optional.of(this.tokens.content(this.lastFiltered));
+    }
 
     protected void next() throws ErrorException {
-        this.last_filtered = Optional.empty();
+        this.lastFiltered = NONE;
         while(true) {
-            this.current = lexer.nextToken();
-            if(Parser.filtered.contains(this.current.type)) {
-                this.last_filtered = Optional.of(this.current);
+            // the end of the file is never left
+            if(this.current != NONE
+                && this.currentType() == Token.Type.FILE_END) { break; }
+            this.current += 1;
+            this.tokens.check(this.current);
+            Token.Type type = this.currentType();
+            if(type == Token.Type.COMMENT || type == Token.Type.DOC_COMMENT) {
+                this.lastFiltered = this.current;
                 continue;
             }
             break;
@@ -49,7 +75,12 @@ public abstract class Parser {
     }
         
     protected void expect(Token.Type... allowedTypes) throws ErrorException {
-        if(!List.of(allowedTypes).contains(this.current.type)) {
+        Token.Type currentType = this.currentType();
+        boolean allowed = false;
+        for(Token.Type allowedType: allowedTypes) {
+            allowed |= allowedType == currentType;
+        }
+        if(!allowed) {
             StringBuilder expected = new StringBuilder();
             for(int expIdx = 0; expIdx < allowedTypes.length; expIdx += 1) {
                 if(expIdx > 0) { expected.append(
@@ -26,6 +26,35 @@ public class SourceParser extends Parser {
         return this.parseStatements(GLOBALLY_SCOPED);
     }
 
+    // Parses the body of a procedure that has been deferred. The lexer
+    // needs to start at the opening brace of the body.
+    List<AstNode> parseDeferredBody() throws ErrorException {
+        this.expect(Token.Type.BRACE_OPEN);
+        this.next();
+        List<AstNode> body = this.parseStatements(LOCALLY_SCOPED);
+        this.expect(Token.Type.BRACE_CLOSE);
+        return body;
+    }
+
+    // Returns the index of the token closing the brace at the given index,
+    // or 'NONE' if the brace is never closed. Nothing is skipped in files
+    // that can't be lexed, so that earlier syntax errors are still reported
+    // before the lexing error.
+    private int findClosingBrace(int openToken) {
+        if(this.tokens.hasError()) { return NONE; }
+        int depth = 0;
+        for(int token = openToken; token < this.tokens.size(); token += 1) {
+            Token.Type type = this.tokens.type(token);
+            if(type == Token.Type.BRACE_OPEN) {
+                depth += 1;
+            } else if(type == Token.Type.BRACE_CLOSE) {
+                depth -= 1;
+                if(depth == 0) { return token; }
+            }
+        }
+        return NONE;
+    }
+
     private static final boolean GLOBALLY_SCOPED = true;
     private static final boolean LOCALLY_SCOPED = false;
 
@@ -33,8 +62,8 @@ public class SourceParser extends Parser {
         boolean inGlobalScope
     ) throws ErrorException {
         List<AstNode> nodes = new ArrayList<>();
-        while(this.current.type != Token.Type.BRACE_CLOSE
-                && this.current.type != Token.Type.FILE_END) {
+        while(this.currentType() != Token.Type.BRACE_CLOSE
+                && this.currentType() != Token.Type.FILE_END) {
             nodes.addAll(this.parseStatement(inGlobalScope));
         }
         return nodes;
@@ -48,67 +77,62 @@ public class SourceParser extends Parser {
             Token.Type.IDENTIFIER,
             Token.Type.ASTERISK
         );
-        Token start = this.current;
-        Token end = this.current;
+        int start = this.current;
+        int end = this.current;
         List<String> segments = new ArrayList<>();
-        while(this.current.type == Token.Type.IDENTIFIER) {
-            segments.add(this.current.content);
+        while(this.currentType() == Token.Type.IDENTIFIER) {
+            segments.add(this.currentContent());
             end = this.current;
             this.next();
-            if(this.current.type != Token.Type.DOUBLE_COLON) {
+            if(this.currentType() != Token.Type.DOUBLE_COLON) {
                 return new Usages(
-                    List.of(new Namespace(segments)),
-                    new Source(start.source, end.source)
+                    List.of(Namespace.of(segments)),
+                    this.tokens.source(start, end)
                 );
             }
             this.next();
         }
         this.expect(Token.Type.PAREN_OPEN, Token.Type.ASTERISK);
-        if(this.current.type == Token.Type.ASTERISK) {
-            segments.add(this.current.content);
+        if(this.currentType() == Token.Type.ASTERISK) {
+            segments.add(this.currentContent());
             end = this.current;
             this.next();
             return new Usages(
-                List.of(new Namespace(segments)),
-                new Source(start.source, end.source)
+                List.of(Namespace.of(segments)),
+                this.tokens.source(start, end)
             );
         }
         this.expect(Token.Type.PAREN_OPEN);
         this.next();
         List<Namespace> paths = new ArrayList<>();
-        while(this.current.type != Token.Type.PAREN_CLOSE) {
+        while(this.currentType() != Token.Type.PAREN_CLOSE) {
             Usages usages = this.parseUsages();
             for(Namespace path: usages.paths) {
                 List<String> finalSegments = new ArrayList<>(segments);
                 finalSegments.addAll(path.elements());
-                paths.add(new Namespace(finalSegments));
+                paths.add(Namespace.of(finalSegments));
             }
             this.expect(Token.Type.COMMA, Token.Type.PAREN_CLOSE);
-            if(this.current.type == Token.Type.COMMA) {
+            if(this.currentType() == Token.Type.COMMA) {
                 this.next();
             }
         }
         end = this.current;
         this.next();
-        return new Usages(paths, new Source(start.source, end.source));
+        return new Usages(paths, this.tokens.source(start, end));
     }
 
     private List<AstNode> parseStatement(
         boolean inGlobalScope
     ) throws ErrorException {
-        Optional<String> docComment = Optional.empty();
-        boolean hasDocComment = this.last_filtered.isPresent() 
-            && this.last_filtered.get().type == Token.Type.DOC_COMMENT;
-        if(hasDocComment) {
-            docComment = Optional.of(this.last_filtered.get().content);
-        }
-        boolean isPublic = this.current.type == Token.Type.KEYWORD_PUBLIC;
+        Optional<String> docComment = this.docComment();
+        boolean isPublic = this.currentType() == Token.Type.KEYWORD_PUBLIC;
         if(isPublic) {
             if(!inGlobalScope) {
                 throw new ErrorException(new Error(
                     "'pub' used in local context",
                     Error.Marking.error(
-                        this.current.source,
+                        this.currentSource(),
                         "'pub' may only be used in the global scope"
                     )
                 ));
@@ -125,40 +149,57 @@ public class SourceParser extends Parser {
                 Token.Type.KEYWORD_USE
             );
         }
-        Token start = this.current;
-        switch(this.current.type) {
+        int start = this.current;
+        switch(this.currentType()) {
             case KEYWORD_PROCEDURE: {
                 if(!inGlobalScope) {
                     throw new ErrorException(new Error(
                         "Procedure in local context",
                         Error.Marking.error(
-                            this.current.source,
+                            this.currentSource(),
                             "procedures may only be defined in the global scope"
                         )
                     ));
                 }
                 this.next();
                 this.expect(Token.Type.IDENTIFIER);
-                String name = this.current.content;
+                String name = this.currentContent();
                 this.next();
                 this.expect(Token.Type.PAREN_OPEN);
                 this.next();
                 List<String> argumentNames = new ArrayList<>();
-                while(this.current.type != Token.Type.PAREN_CLOSE) {
+                while(this.currentType() != Token.Type.PAREN_CLOSE) {
                     this.expect(Token.Type.IDENTIFIER);
-                    argumentNames.add(this.current.content);
+                    argumentNames.add(this.currentContent());
                     this.next();
                     this.expect(Token.Type.COMMA, Token.Type.PAREN_CLOSE);
-                    if(this.current.type == Token.Type.COMMA) {
+                    if(this.currentType() == Token.Type.COMMA) {
                         this.next();
                     }
                 }
                 this.next();
                 this.expect(Token.Type.BRACE_OPEN, Token.Type.EQUALS);
                 List<AstNode> body;
+                Optional<DeferredBody> deferredBody = Optional.empty();
                 Source endSource;
-                if(this.current.type == Token.Type.EQUALS) {
-                    Source returnSourceStart = this.current.source;
+                int closingBrace = this.currentType() == Token.Type.BRACE_OPEN
+                    ? this.findClosingBrace(this.current)
+                    : NONE;
+                if(closingBrace != NONE) {
+                    // the body is only parsed once it's needed
+                    DeferredBody deferred = new DeferredBody(
+                        this.tokens.fileName(), this.tokens.fileContent(),
+                        this.target,
+                        this.tokens.start(this.current),
+                        this.tokens.end(closingBrace)
+                    );
+                    body = deferred.nodes();
+                    deferredBody = Optional.of(deferred);
+                    endSource = this.tokens.source(closingBrace);
+                    this.current = closingBrace;
+                    this.next();
+                } else if(this.currentType() == Token.Type.EQUALS) {
+                    Source returnSourceStart = this.currentSource();
                     this.next();
                     AstNode value = this.parseExpression(true);
                     body = List.of(new AstNode(
@@ -171,35 +212,38 @@ public class SourceParser extends Parser {
                     this.next();
                     body = this.parseStatements(LOCALLY_SCOPED);
                     this.expect(Token.Type.BRACE_CLOSE);
-                    endSource = this.current.source;
+                    endSource = this.currentSource();
                     this.next();
                 }
                 return List.of(new AstNode(
                     AstNode.Type.PROCEDURE,
                     new AstNode.Procedure(
-                        docComment, isPublic, name, argumentNames, body
+                        docComment, isPublic, name, argumentNames, body,
+                        deferredBody
                     ),
-                    new Source(start.source, endSource)
+                    new Source(this.tokens.source(start), endSource)
                 ));
             }
             case KEYWORD_VALUE:
             case KEYWORD_MUTABLE: {
-                boolean isMutable = this.current.type
+                boolean isMutable = this.currentType()
                     == Token.Type.KEYWORD_MUTABLE;
                 this.next();
                 this.expect(Token.Type.IDENTIFIER);
-                String name = this.current.content;
-                Token nameToken = this.current;
+                String name = this.currentContent();
+                int nameToken = this.current;
                 this.next();
                 if(inGlobalScope) {
                     this.expect(Token.Type.EQUALS);
                 }
                 Optional<AstNode> value = Optional.empty();
-                Source source = new Source(start.source, nameToken.source);
-                if(this.current.type == Token.Type.EQUALS) {
+                Source source = this.tokens.source(start, nameToken);
+                if(this.currentType() == Token.Type.EQUALS) {
                     this.next();
                     value = Optional.of(this.parseExpression(!inGlobalScope));
-                    source = new Source(start.source, value.get().source);
+                    source = new Source(
+                        this.tokens.source(start), value.get().source
+                    );
                 }
                 return List.of(new AstNode(
                     AstNode.Type.VARIABLE,
@@ -215,28 +259,28 @@ public class SourceParser extends Parser {
                 this.next();
                 AstNode value = this.parseExpression(true);
                 this.expect(Token.Type.ARROW, Token.Type.BRACE_OPEN);
-                if(this.current.type == Token.Type.ARROW) {
+                if(this.currentType() == Token.Type.ARROW) {
                     this.next();
                     List<AstNode> ifBody;
                     Source endSource;
                     List<AstNode> elseBody;
-                    if(this.current.type == Token.Type.BRACE_OPEN) {
+                    if(this.currentType() == Token.Type.BRACE_OPEN) {
                         this.next();
                         ifBody = this.parseStatements(LOCALLY_SCOPED);
                         this.expect(Token.Type.BRACE_CLOSE);
-                        endSource = this.current.source;
+                        endSource = this.currentSource();
                         this.next();
                     } else {
                         ifBody = this.parseStatement(LOCALLY_SCOPED);
                         endSource = ifBody.get(ifBody.size() - 1).source;
                     }
-                    if(this.current.type == Token.Type.KEYWORD_ELSE) {
+                    if(this.currentType() == Token.Type.KEYWORD_ELSE) {
                         this.next();
-                        if(this.current.type == Token.Type.BRACE_OPEN) {
+                        if(this.currentType() == Token.Type.BRACE_OPEN) {
                             this.next();
                             elseBody = this.parseStatements(LOCALLY_SCOPED);
                             this.expect(Token.Type.BRACE_CLOSE);
-                            endSource = this.current.source;
+                            endSource = this.currentSource();
                             this.next();
                         } else {
                             elseBody = this.parseStatement(
@@ -251,36 +295,36 @@ public class SourceParser extends Parser {
                     return List.of(new AstNode(
                         AstNode.Type.CASE_CONDITIONAL,
                         new AstNode.CaseConditional(value, ifBody, elseBody),
-                        new Source(start.source, endSource)
+                        new Source(this.tokens.source(start), endSource)
                     ));
                 } else {
                     this.next();
-                    if(this.current.type == Token.Type.HASHTAG) {
+                    if(this.currentType() == Token.Type.HASHTAG) {
                         List<String> branchVariants = new ArrayList<>();
                         List<Optional<String>> branchVariableNames
                             = new ArrayList<>();
                         List<List<AstNode>> branchBodies = new ArrayList<>();
-                        while(this.current.type != Token.Type.BRACE_CLOSE) {
+                        while(this.currentType() != Token.Type.BRACE_CLOSE) {
                             this.expect(Token.Type.HASHTAG);
                             this.next();
                             this.expect(Token.Type.IDENTIFIER);
-                            branchVariants.add(this.current.content);
+                            branchVariants.add(this.currentContent());
                             this.next();
                             this.expect(
                                 Token.Type.IDENTIFIER, Token.Type.ARROW
                             );
                             branchVariableNames.add(
-                                this.current.type == Token.Type.IDENTIFIER
-                                ? Optional.of(this.current.content)
+                                this.currentType() == Token.Type.IDENTIFIER
+                                ? Optional.of(this.currentContent())
                                 : Optional.empty()
                             );
-                            if(this.current.type == Token.Type.IDENTIFIER) {
+                            if(this.currentType() == Token.Type.IDENTIFIER) {
                                 this.next();
                             }
                             this.expect(Token.Type.ARROW);
                             this.next();
                             List<AstNode> branchBody;
-                            if(this.current.type == Token.Type.BRACE_OPEN) {
+                            if(this.currentType() == Token.Type.BRACE_OPEN) {
                                 this.next();
                                 branchBody = this.parseStatements(
                                     LOCALLY_SCOPED
@@ -294,18 +338,18 @@ public class SourceParser extends Parser {
                             }
                             branchBodies.add(branchBody);
                         }
-                        Source endSource = this.current.source;
+                        Source endSource = this.currentSource();
                         this.next();
                         Optional<List<AstNode>> elseBody;
-                        if(this.current.type == Token.Type.KEYWORD_ELSE) {
+                        if(this.currentType() == Token.Type.KEYWORD_ELSE) {
                             this.next();
-                            if(this.current.type == Token.Type.BRACE_OPEN) {
+                            if(this.currentType() == Token.Type.BRACE_OPEN) {
                                 this.next();
                                 elseBody = Optional.of(
                                     this.parseStatements(LOCALLY_SCOPED)
                                 );
                                 this.expect(Token.Type.BRACE_CLOSE);
-                                endSource = this.current.source;
+                                endSource = this.currentSource();
                                 this.next();
                             } else {
                                 elseBody = Optional.of(
@@ -324,18 +368,18 @@ public class SourceParser extends Parser {
                                 value, branchVariants, branchVariableNames,
                                 branchBodies, elseBody
                             ),
-                            new Source(start.source, endSource)
+                            new Source(this.tokens.source(start), endSource)
                         ));
                     } else {
                         List<AstNode> branchValues = new ArrayList<>();
                         List<List<AstNode>> branchBodies = new ArrayList<>();
-                        while(this.current.type != Token.Type.BRACE_CLOSE) {
+                        while(this.currentType() != Token.Type.BRACE_CLOSE) {
                             AstNode branchValue = this.parseExpression(false);
                             branchValues.add(branchValue);
                             this.expect(Token.Type.ARROW);
                             this.next();
                             List<AstNode> branchBody;
-                            if(this.current.type == Token.Type.BRACE_OPEN) {
+                            if(this.currentType() == Token.Type.BRACE_OPEN) {
                                 this.next();
                                 branchBody = this.parseStatements(
                                     LOCALLY_SCOPED
@@ -349,16 +393,16 @@ public class SourceParser extends Parser {
                             }
                             branchBodies.add(branchBody);
                         }
-                        Source endSource = this.current.source;
+                        Source endSource = this.currentSource();
                         this.next();
                         List<AstNode> elseBody;
-                        if(this.current.type == Token.Type.KEYWORD_ELSE) {
+                        if(this.currentType() == Token.Type.KEYWORD_ELSE) {
                             this.next();
-                            if(this.current.type == Token.Type.BRACE_OPEN) {
+                            if(this.currentType() == Token.Type.BRACE_OPEN) {
                                 this.next();
                                 elseBody = this.parseStatements(LOCALLY_SCOPED);
                                 this.expect(Token.Type.BRACE_CLOSE);
-                                endSource = this.current.source;
+                                endSource = this.currentSource();
                                 this.next();
                             } else {
                                 elseBody = this.parseStatement(
@@ -375,7 +419,7 @@ public class SourceParser extends Parser {
                             new AstNode.CaseBranching(
                                 value, branchValues, branchBodies, elseBody
                             ),
-                            new Source(start.source, endSource)
+                            new Source(this.tokens.source(start), endSource)
                         ));
                     }
                 }
@@ -386,29 +430,29 @@ public class SourceParser extends Parser {
                 return List.of(new AstNode(
                     AstNode.Type.RETURN,
                     new AstNode.MonoOp(value),
-                    new Source(start.source, value.source)
+                    new Source(this.tokens.source(start), value.source)
                 ));
             }
             case KEYWORD_MODULE: {
                 this.next();
                 this.expect(Token.Type.IDENTIFIER);
                 List<String> segments = new ArrayList<>();
-                segments.add(this.current.content);
-                Token end = this.current;
+                segments.add(this.currentContent());
+                int end = this.current;
                 this.next();
-                while(this.current.type == Token.Type.DOUBLE_COLON) {
+                while(this.currentType() == Token.Type.DOUBLE_COLON) {
                     this.next();
                     this.expect(Token.Type.IDENTIFIER);
-                    segments.add(this.current.content);
+                    segments.add(this.currentContent());
                     end = this.current;
                     this.next();
                 }
                 return List.of(new AstNode(
                     AstNode.Type.MODULE_DECLARATION,
                     new AstNode.ModuleDeclaration(
-                        docComment, new Namespace(segments)
+                        docComment, Namespace.of(segments)
                     ),
-                    new Source(start.source, end.source)
+                    this.tokens.source(start, end)
                 ));
             }
             case KEYWORD_USE: {
@@ -417,13 +461,13 @@ public class SourceParser extends Parser {
                 return List.of(new AstNode(
                     AstNode.Type.USE,
                     new AstNode.Usages(usages.paths),
-                    new Source(start.source, usages.source)
+                    new Source(this.tokens.source(start), usages.source)
                 ));
             }
             case KEYWORD_TARGET: {
                 this.next();
                 this.expect(Token.Type.IDENTIFIER);
-                String targetName = this.current.content;
+                String targetName = this.currentContent();
                 this.next();
                 this.expect(Token.Type.BRACE_OPEN);
                 this.next();
@@ -436,7 +480,7 @@ public class SourceParser extends Parser {
             }
             default: {
                 AstNode expr = this.parseExpression(true);
-                if(this.current.type != Token.Type.EQUALS) {
+                if(this.currentType() != Token.Type.EQUALS) {
                     return List.of(expr);
                 }
                 if(!expr.isAssignable()) {
@@ -447,7 +491,7 @@ public class SourceParser extends Parser {
                             "this expression is not mutable..."
                         ),
                         Error.Marking.error(
-                            this.current.source,
+                            this.currentSource(),
                             "...so it may not be assigned to"
                         )
                     ));
@@ -467,8 +511,8 @@ public class SourceParser extends Parser {
         return this.parseExpression(999, inCalledScope);
     }
 
-    private static AstNode.Type infixBiOpNodeType(Token operatorToken) {
-        switch(operatorToken.type) {
+    private static AstNode.Type infixBiOpNodeType(Token.Type operatorType) {
+        switch(operatorType) {
             case PLUS: return AstNode.Type.ADD;
             case MINUS: return AstNode.Type.SUBTRACT;
             case ASTERISK: return AstNode.Type.MULTIPLY;
@@ -491,34 +535,34 @@ public class SourceParser extends Parser {
     ) throws ErrorException {
         Optional<AstNode> previous = Optional.empty();
         while(true) {
-            int currentPrecedence = this.current.type.infixPrecedence;
+            int currentPrecedence = this.currentType().infixPrecedence;
             if(previous.isPresent() && currentPrecedence >= precedence) {
                 return previous.get();
             }
-            Token start = this.current;
+            int start = this.current;
             if(previous.isPresent()) {
-                switch(this.current.type) {
+                switch(this.currentType()) {
                     case PAREN_OPEN: {
                         AstNode called = previous.get();
                         this.next();
                         List<AstNode> arguments = new ArrayList<>();
-                        while(this.current.type != Token.Type.PAREN_CLOSE) {
+                        while(this.currentType() != Token.Type.PAREN_CLOSE) {
                             AstNode argument = this
                                 .parseExpression(inCalledScope);
                             arguments.add(argument);
                             this.expect(
                                 Token.Type.COMMA, Token.Type.PAREN_CLOSE
                             );
-                            if(this.current.type == Token.Type.COMMA) {
+                            if(this.currentType() == Token.Type.COMMA) {
                                 this.next();
                             }
                         }
-                        Token end = this.current;
+                        int end = this.current;
                         this.next();
                         previous = Optional.of(new AstNode(
                             AstNode.Type.CALL,
                             new AstNode.Call(called, arguments),
-                            new Source(called.source, end.source)
+                            new Source(called.source, this.tokens.source(end))
                         ));
                         continue;
                     }
@@ -526,30 +570,30 @@ public class SourceParser extends Parser {
                         AstNode accessed = previous.get();
                         this.next();
                         this.expect(Token.Type.IDENTIFIER);
-                        String memberName = this.current.content;
+                        String memberName = this.currentContent();
                         this.next();
                         this.expect(Token.Type.PAREN_OPEN);
                         this.next();
                         List<AstNode> arguments = new ArrayList<>();
-                        while(this.current.type != Token.Type.PAREN_CLOSE) {
+                        while(this.currentType() != Token.Type.PAREN_CLOSE) {
                             AstNode argument = this
                                 .parseExpression(inCalledScope);
                             arguments.add(argument);
                             this.expect(
                                 Token.Type.COMMA, Token.Type.PAREN_CLOSE
                             );
-                            if(this.current.type == Token.Type.COMMA) {
+                            if(this.currentType() == Token.Type.COMMA) {
                                 this.next();
                             }
                         }
-                        Token end = this.current;
+                        int end = this.current;
                         this.next();
                         previous = Optional.of(new AstNode(
                             AstNode.Type.METHOD_CALL,
                             new AstNode.MethodCall(
                                 accessed, memberName, arguments
                             ),
-                            new Source(accessed.source, end.source)
+                            new Source(accessed.source, this.tokens.source(end))
                         ));
                         continue;
                     }
@@ -585,13 +629,13 @@ public class SourceParser extends Parser {
                         AstNode accessed = previous.get();
                         this.next();
                         this.expect(Token.Type.IDENTIFIER);
-                        String memberName = this.current.content;
-                        Token end = this.current;
+                        String memberName = this.currentContent();
+                        int end = this.current;
                         this.next();
                         previous = Optional.of(new AstNode(
                             AstNode.Type.OBJECT_ACCESS,
                             new AstNode.ObjectAccess(accessed, memberName),
-                            new Source(accessed.source, end.source)
+                            new Source(accessed.source, this.tokens.source(end))
                         ));
                         continue;
                     }
@@ -600,12 +644,12 @@ public class SourceParser extends Parser {
                         this.next();
                         AstNode index = this.parseExpression(inCalledScope);
                         this.expect(Token.Type.BRACKET_CLOSE);
-                        Token end = this.current;
+                        int end = this.current;
                         this.next();
                         previous = Optional.of(new AstNode(
                             AstNode.Type.ARRAY_ACCESS,
                             new AstNode.BiOp(accessed, index),
-                            new Source(accessed.source, end.source)
+                            new Source(accessed.source, this.tokens.source(end))
                         ));
                         continue;
                     }
@@ -625,10 +669,13 @@ public class SourceParser extends Parser {
                         AstNode left = previous.get();
                         this.next();
                         AstNode right = this.parseExpression(
-                            start.type.infixPrecedence, inCalledScope
+                            this.tokens.type(start).infixPrecedence,
+                            inCalledScope
                         );
                         previous = Optional.of(new AstNode(
-                            SourceParser.infixBiOpNodeType(start),
+                            SourceParser.infixBiOpNodeType(
+                                this.tokens.type(start)
+                            ),
                             new AstNode.BiOp(left, right),
                             new Source(left.source, right.source)
                         ));
@@ -639,22 +686,24 @@ public class SourceParser extends Parser {
                         AstNode rangeStart = previous.get();
                         this.next();
                         AstNode rangeEnd = this.parseExpression(
-                            start.type.infixPrecedence, inCalledScope
+                            this.tokens.type(start).infixPrecedence,
+                            inCalledScope
                         );
                         previous = Optional.of(new AstNode(
                             AstNode.Type.CALL,
                             new AstNode.Call(
                                 new AstNode(
                                     AstNode.Type.MODULE_ACCESS,
-                                    new AstNode.ModuleAccess(new Namespace(
+                                    new AstNode.ModuleAccess(Namespace.of(
                                         List.of(
                                             "core",
-                                            start.type == Token.Type.DOUBLE_DOT
+                                            this.tokens.type(start)
+                                                    == Token.Type.DOUBLE_DOT
                                                 ? "range"
                                                 : "range_incl"
                                         )
                                     ), Optional.empty()),
-                                    start.source
+                                    this.tokens.source(start)
                                 ),
                                 List.of(rangeStart, rangeEnd)
                             ),
@@ -667,7 +716,7 @@ public class SourceParser extends Parser {
                             throw new ErrorException(new Error(
                                 "Variant unwrap used in non-call context",
                                 Error.Marking.error(
-                                    this.current.source,
+                                    this.currentSource(),
                                     "no value can be returned in this context,"
                                         + " but '?' might return a value"
                                 )
@@ -676,13 +725,15 @@ public class SourceParser extends Parser {
                         AstNode unwrapped = previous.get();
                         this.next();
                         this.expect(Token.Type.IDENTIFIER);
-                        String variantName = this.current.content;
-                        Token endToken = this.current;
+                        String variantName = this.currentContent();
+                        int endToken = this.current;
                         this.next();
                         previous = Optional.of(new AstNode(
                             AstNode.Type.VARIANT_UNWRAP,
                             new AstNode.VariantUnwrap(unwrapped, variantName),
-                            new Source(unwrapped.source, endToken.source)
+                            new Source(
+                                unwrapped.source, this.tokens.source(endToken)
+                            )
                         ));
                         continue;
                     }
@@ -691,36 +742,36 @@ public class SourceParser extends Parser {
                     }
                 }
             }
-            switch(this.current.type) {
+            switch(this.currentType()) {
                 case DOUBLE_PIPE:
                 case PIPE:
                 case ARROW: {
                     List<String> argumentNames = new ArrayList<>();
                     List<Source> argumentSources = new ArrayList<>();
-                    if(this.current.type == Token.Type.PIPE) {
+                    if(this.currentType() == Token.Type.PIPE) {
                         this.next();
-                        while(this.current.type != Token.Type.PIPE) {
+                        while(this.currentType() != Token.Type.PIPE) {
                             this.expect(Token.Type.IDENTIFIER);
-                            argumentNames.add(this.current.content);
-                            argumentSources.add(this.current.source);
+                            argumentNames.add(this.currentContent());
+                            argumentSources.add(this.currentSource());
                             this.next();
                             this.expect(Token.Type.COMMA, Token.Type.PIPE);
-                            if(this.current.type == Token.Type.COMMA) {
+                            if(this.currentType() == Token.Type.COMMA) {
                                 this.next();
                             }
                         }
-                    } else if(this.current.type == Token.Type.ARROW) {
+                    } else if(this.currentType() == Token.Type.ARROW) {
                         argumentNames.add("it");
-                        argumentSources.add(start.source);
+                        argumentSources.add(this.tokens.source(start));
                     }
                     this.next();
                     List<AstNode> body;
                     Source endSource;
-                    if(this.current.type == Token.Type.BRACE_OPEN) {
+                    if(this.currentType() == Token.Type.BRACE_OPEN) {
                         this.next();
                         body = this.parseStatements(LOCALLY_SCOPED);
                         this.expect(Token.Type.BRACE_CLOSE);
-                        endSource = this.current.source;
+                        endSource = this.currentSource();
                         this.next();
                     } else {
                         AstNode value = this.parseExpression(true);
@@ -740,17 +791,17 @@ public class SourceParser extends Parser {
                             new Ref<>(Optional.empty()),
                             body
                         ),
-                        new Source(start.source, endSource)
+                        new Source(this.tokens.source(start), endSource)
                     ));
                     continue;
                 }
                 case BRACE_OPEN: {
                     this.next();
                     Map<String, AstNode> memberValues = new HashMap<>();
-                    while(this.current.type != Token.Type.BRACE_CLOSE) {
+                    while(this.currentType() != Token.Type.BRACE_CLOSE) {
                         this.expect(Token.Type.IDENTIFIER);
-                        String memberName = this.current.content;
-                        Source memberSource = this.current.source;
+                        String memberName = this.currentContent();
+                        Source memberSource = this.currentSource();
                         this.next();
                         this.expect(
                             Token.Type.EQUALS,
@@ -758,7 +809,7 @@ public class SourceParser extends Parser {
                             Token.Type.BRACE_CLOSE
                         );
                         AstNode memberValue;
-                        if(this.current.type == Token.Type.EQUALS) {
+                        if(this.currentType() == Token.Type.EQUALS) {
                             this.next();
                             memberValue = this.parseExpression(inCalledScope);
                             this.expect(
@@ -768,7 +819,7 @@ public class SourceParser extends Parser {
                             memberValue = new AstNode(
                                 AstNode.Type.MODULE_ACCESS,
                                 new AstNode.ModuleAccess(
-                                    new Namespace(List.of(memberName)),
+                                    Namespace.of(List.of(memberName)),
                                     Optional.empty()
                                 ),
                                 memberSource
@@ -785,28 +836,28 @@ public class SourceParser extends Parser {
                             ));
                         }
                         memberValues.put(memberName, memberValue);
-                        if(this.current.type == Token.Type.COMMA) {
+                        if(this.currentType() == Token.Type.COMMA) {
                             this.next();
                         }
                     }
-                    Token end = this.current;
+                    int end = this.current;
                     this.next();
                     previous = Optional.of(new AstNode(
                         AstNode.Type.OBJECT_LITERAL,
                         new AstNode.ObjectLiteral(memberValues),
-                        new Source(start.source, end.source)
+                        this.tokens.source(start, end)
                     ));
                     continue;
                 }
                 case BRACKET_OPEN: {
                     this.next();
-                    if(this.current.type == Token.Type.BRACKET_CLOSE) {
-                        Token end = this.current;
+                    if(this.currentType() == Token.Type.BRACKET_CLOSE) {
+                        int end = this.current;
                         this.next();
                         previous = Optional.of(new AstNode(
                             AstNode.Type.ARRAY_LITERAL,
                             new AstNode.ArrayLiteral(List.of()),
-                            new Source(start.source, end.source)
+                            this.tokens.source(start, end)
                         ));
                         continue;
                     }
@@ -815,87 +866,88 @@ public class SourceParser extends Parser {
                         Token.Type.COMMA, Token.Type.SEMICOLON, 
                         Token.Type.BRACKET_CLOSE
                     );
-                    if(this.current.type == Token.Type.SEMICOLON) {
+                    if(this.currentType() == Token.Type.SEMICOLON) {
                         this.next();
                         AstNode size = this.parseExpression(inCalledScope);
                         this.expect(Token.Type.BRACKET_CLOSE);
-                        Token end = this.current;
+                        int end = this.current;
                         this.next();
                         previous = Optional.of(new AstNode(
                             AstNode.Type.REPEATING_ARRAY_LITERAL,
                             new AstNode.BiOp(value, size),
-                            new Source(start.source, end.source)
+                            this.tokens.source(start, end)
                         ));
                         continue;
                     }
                     List<AstNode> values = new ArrayList<>();
                     values.add(value);
-                    if(this.current.type == Token.Type.COMMA) {
+                    if(this.currentType() == Token.Type.COMMA) {
                         this.next();                        
-                        while(this.current.type != Token.Type.BRACKET_CLOSE) {
+                        while(this.currentType() != Token.Type.BRACKET_CLOSE) {
                             values.add(this.parseExpression(inCalledScope));
                             this.expect(
                                 Token.Type.BRACKET_CLOSE, Token.Type.COMMA
                             );
-                            if(this.current.type == Token.Type.COMMA) {
+                            if(this.currentType() == Token.Type.COMMA) {
                                 this.next();
                             }
                         }
                     }
-                    Token end = this.current;
+                    int end = this.current;
                     this.next();
                     previous = Optional.of(new AstNode(
                         AstNode.Type.ARRAY_LITERAL,
                         new AstNode.ArrayLiteral(values),
-                        new Source(start.source, end.source)
+                        this.tokens.source(start, end)
                     ));
                     continue;
                 }
                 case KEYWORD_TRUE:
                 case KEYWORD_FALSE: {
-                    String value = this.current.content;
+                    String value = this.currentContent();
                     this.next();
                     previous = Optional.of(new AstNode(
                         AstNode.Type.BOOLEAN_LITERAL,
                         new AstNode.SimpleLiteral(value),
-                        start.source
+                        this.tokens.source(start)
                     ));
                     continue;
                 }
                 case INTEGER: {
-                    String value = this.current.content;
+                    String value = this.currentContent();
                     this.next();
                     previous = Optional.of(new AstNode(
                         AstNode.Type.INTEGER_LITERAL,
                         new AstNode.SimpleLiteral(value),
-                        start.source
+                        this.tokens.source(start)
                     ));
                     continue;
                 }
                 case FRACTION: {
-                    String value = this.current.content;
+                    String value = this.currentContent();
                     this.next();
                     previous = Optional.of(new AstNode(
                         AstNode.Type.FLOAT_LITERAL,
                         new AstNode.SimpleLiteral(value),
-                        start.source
+                        this.tokens.source(start)
                     ));
                     continue;
                 }
                 case STRING: {
-                    String value = this.current.content;
+                    String value = this.currentContent();
                     this.next();
                     previous = Optional.of(new AstNode(
                         AstNode.Type.STRING_LITERAL,
                         new AstNode.SimpleLiteral(value),
-                        start.source
+                        this.tokens.source(start)
                     ));
                     continue;
                 }
                 case KEYWORD_UNIT: {
                     this.next();
                     previous = Optional.of(new AstNode(
-                        AstNode.Type.UNIT_LITERAL, null, start.source
+                        AstNode.Type.UNIT_LITERAL, null,
+                        this.tokens.source(start)
                     ));
                     continue;
                 }
@@ -907,7 +959,7 @@ public class SourceParser extends Parser {
                     previous = Optional.of(new AstNode(
                         AstNode.Type.NEGATE, 
                         new AstNode.MonoOp(negated),
-                        new Source(start.source, negated.source)
+                        new Source(this.tokens.source(start), negated.source)
                     ));
                     continue;
                 }
@@ -920,35 +972,35 @@ public class SourceParser extends Parser {
                     previous = Optional.of(new AstNode(
                         AstNode.Type.NOT, 
                         new AstNode.MonoOp(negated),
-                        new Source(start.source, negated.source)
+                        new Source(this.tokens.source(start), negated.source)
                     ));
                     continue;
                 }
                 case IDENTIFIER: {
                     List<String> segments = new ArrayList<>();
-                    segments.add(this.current.content);
-                    Token end = this.current;
+                    segments.add(this.currentContent());
+                    int end = this.current;
                     this.next();
-                    while(this.current.type == Token.Type.DOUBLE_COLON) {
+                    while(this.currentType() == Token.Type.DOUBLE_COLON) {
                         this.next();
                         this.expect(Token.Type.IDENTIFIER);
-                        segments.add(this.current.content);
+                        segments.add(this.currentContent());
                         end = this.current;
                         this.next();
                     }
                     previous = Optional.of(new AstNode(
                         AstNode.Type.MODULE_ACCESS, 
                         new AstNode.ModuleAccess(
-                            new Namespace(segments), Optional.empty()
+                            Namespace.of(segments), Optional.empty()
                         ),
-                        new Source(start.source, end.source)
+                        this.tokens.source(start, end)
                     ));
                     continue;
                 }
                 case HASHTAG: {
                     this.next();
                     this.expect(Token.Type.IDENTIFIER);
-                    String variantName = this.current.content;
+                    String variantName = this.currentContent();
                     this.next();
                     AstNode variantValue = this.parseExpression(
                         Token.Type.PREFIX_HASHTAG_PRECEDENCE, inCalledScope
@@ -956,7 +1008,9 @@ public class SourceParser extends Parser {
                     previous = Optional.of(new AstNode(
                         AstNode.Type.VARIANT_LITERAL, 
                         new AstNode.VariantLiteral(variantName, variantValue),
-                        new Source(start.source, variantValue.source)
+                        new Source(
+                            this.tokens.source(start), variantValue.source
+                        )
                     ));
                     continue;
                 }
@@ -966,7 +1020,7 @@ public class SourceParser extends Parser {
                     previous = Optional.of(new AstNode(
                         AstNode.Type.STATIC, 
                         new AstNode.MonoOp(expr),
-                        new Source(start.source, expr.source)
+                        new Source(this.tokens.source(start), expr.source)
                     ));
                     continue;
                 }
@@ -974,12 +1028,12 @@ public class SourceParser extends Parser {
                     this.next();
                     AstNode expr = this.parseExpression(inCalledScope);
                     this.expect(Token.Type.PAREN_CLOSE);
-                    Token end = this.current;
+                    int end = this.current;
                     this.next();
                     previous = Optional.of(new AstNode(
                         expr.type, 
                         expr.getValue(),
-                        new Source(start.source, end.source)
+                        this.tokens.source(start, end)
                     ));
                     continue;
                 }
@@ -0,0 +1,139 @@
+
+package typesafeschwalbe.gerac.compiler.frontend;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import typesafeschwalbe.gerac.compiler.ErrorException;
+import typesafeschwalbe.gerac.compiler.Source;
+
+// All tokens of a file, stored as parallel arrays instead of 'Token'
+// objects. The content of a token is only taken from the source text once
+// it's requested. Tokens are referred to using their index.
+public class TokenBuffer {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+
+    private final String fileName;
+    private final String fileContent;
+    private byte[] types;
+    private int[] starts;
+    private int[] ends;
+    // strings and doc comments, where the content isn't the source text
+    private final Map<Integer, String> contents;
+    private int size;
+    // lexing errors are only reported once the parser reaches them,
+    // so that errors earlier in the file are reported first
+    private Optional<ErrorException> error;
+
+    private TokenBuffer(String fileName, String fileContent, int length) {
+        this.fileName = fileName;
+        this.fileContent = fileContent;
+        int capacity = length / 4 + 16;
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.contents = new HashMap<>();
+        this.size = 0;
+        this.error = Optional.empty();
+    }
+
+    // Lexes the remaining tokens of the given lexer. The last token
+    // is either the end of the file or the location of a lexing error.
+    public static TokenBuffer of(Lexer lexer) {
+        TokenBuffer buffer = new TokenBuffer(
+            lexer.fileName(), lexer.fileContent(), lexer.remainingLength()
+        );
+        while(true) {
+            Token.Type type;
+            try {
+                type = lexer.scan();
+            } catch(ErrorException e) {
+                buffer.error = Optional.of(e);
+                break;
+            }
+            buffer.add(
+                type, lexer.tokenStart(), lexer.tokenEnd(),
+                lexer.tokenContent()
+            );
+            if(type == Token.Type.FILE_END) { break; }
+        }
+        return buffer;
+    }
+
+    private void add(
+        Token.Type type, int start, int end, Optional<String> content
+    ) {
+        if(this.size == this.types.length) {
+            int capacity = this.types.length * 2;
+            this.types = Arrays.copyOf(this.types, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.ends = Arrays.copyOf(this.ends, capacity);
+        }
+        this.types[this.size] = (byte) type.ordinal();
+        this.starts[this.size] = start;
+        this.ends[this.size] = end;
+        if(content.isPresent()) {
+            this.contents.put(this.size, content.get());
+        }
+        this.size += 1;
+    }
+
+    public String fileName() {
+        return this.fileName;
+    }
+
+    public String fileContent() {
+        return this.fileContent;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    // Throws the lexing error if the token couldn't be lexed.
+    public void check(int token) throws ErrorException {
+        if(token >= this.size && this.error.isPresent()) {
+            throw this.error.get();
+        }
+    }
+
+    public boolean hasError() {
+        return this.error.isPresent();
+    }
+
+    public Token.Type type(int token) {
+        return TYPES[this.types[token]];
+    }
+
+    public String content(int token) {
+        String content = this.contents.get(token);
+        if(content != null) { return content; }
+        return this.fileContent.substring(
+            this.starts[token], this.ends[token]
+        );
+    }
+
+    public int start(int token) {
+        return this.starts[token];
+    }
+
+    public int end(int token) {
+        return this.ends[token];
+    }
+
+    public Source source(int token) {
+        return new Source(this.fileName, this.starts[token], this.ends[token]);
+    }
+
+    // Returns the source spanning from the start of the first token
+    // to the end of the second token.
+    public Source source(int startToken, int endToken) {
+        return new Source(
+            this.fileName, this.starts[startToken], this.ends[endToken]
+        );
+    }
+
+}
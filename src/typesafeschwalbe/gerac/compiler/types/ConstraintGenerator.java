@@ -4,6 +4,7 @@ package typesafeschwalbe.gerac.compiler.types;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -56,8 +57,10 @@ public class ConstraintGenerator {
     private Symbols.Symbol inSymbol;
     private List<TypeConstraint> constraints;
     private List<CallFrame> stack;
-    private List<VariableUsage> varUsages;
-    private List<ProcedureUsage> procUsages;
+    // usages are keyed by the node they were found at, which allows
+    // the solver to look them up while processing the tree
+    private Map<AstNode, VariableUsage> varUsages;
+    private Map<AstNode, ProcedureUsage> procUsages;
 
     public ConstraintGenerator(Symbols symbols, TypeContext ctx) {
         this.symbols = symbols;
@@ -68,20 +71,118 @@ public class ConstraintGenerator {
         this.inSymbol = s;
         this.constraints = new LinkedList<>();
         this.stack = new LinkedList<>();
-        this.varUsages = new ArrayList<>();
-        this.procUsages = new ArrayList<>();
+        this.varUsages = new IdentityHashMap<>();
+        this.procUsages = new IdentityHashMap<>();
+    }
+
+    // Maps the type variables created while generating the constraints
+    // of a procedure (which are numbered consecutively) to the ones of
+    // another instance of the same procedure.
+    public static class Renaming {
+
+        public static final Renaming NONE = new Renaming(0, 0, 0);
+
+        private final int fromId;
+        private final int toId;
+        private final int count;
+        // so that each variable is only represented by one object
+        private final TypeVariable[] renamed;
+
+        private Renaming(int fromId, int toId, int count) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.count = count;
+            this.renamed = new TypeVariable[count];
+        }
+
+        public boolean isNone() {
+            return this.count == 0;
+        }
+
+        public TypeVariable apply(TypeVariable var) {
+            int offset = var.id - this.fromId;
+            if(offset < 0 || offset >= this.count) { return var; }
+            TypeVariable renamed = this.renamed[offset];
+            if(renamed == null) {
+                renamed = new TypeVariable(this.toId + offset);
+                this.renamed[offset] = renamed;
+            }
+            return renamed;
+        }
+
+        public Optional<TypeVariable> apply(Optional<TypeVariable> var) {
+            if(this.isNone() || var.isEmpty()) { return var; }
+            return Optional.of(this.apply(var.get()));
+        }
+
     }
 
     public static record ProcOutput(
         TypeContext ctx, List<TypeConstraint> constraints,
         List<TypeVariable> arguments, TypeVariable returned,
-        List<VariableUsage> varUsages, List<ProcedureUsage> procUsages
-    ) {}
+        Map<AstNode, VariableUsage> varUsages,
+        Map<AstNode, ProcedureUsage> procUsages,
+        int firstVarId, int varCount
+    ) {
+
+        // Creates fresh type variables for another instance of the
+        // procedure. This results in the same constraints (and variables)
+        // as generating them again, without walking the procedure.
+        public Renaming makeRenaming() {
+            int toId = this.ctx.varVount();
+            for(int varI = 0; varI < this.varCount; varI += 1) {
+                this.ctx.makeVar();
+            }
+            return new Renaming(this.firstVarId, toId, this.varCount);
+        }
+
+        public ProcOutput renamed(Renaming renaming) {
+            List<TypeConstraint> constraints = new ArrayList<>(
+                this.constraints.size()
+            );
+            for(TypeConstraint constraint: this.constraints) {
+                constraints.add(constraint.renamed(renaming::apply));
+            }
+            List<TypeVariable> arguments = new ArrayList<>(
+                this.arguments.size()
+            );
+            for(TypeVariable argument: this.arguments) {
+                arguments.add(renaming.apply(argument));
+            }
+            Map<AstNode, VariableUsage> varUsages = new IdentityHashMap<>();
+            for(VariableUsage usage: this.varUsages.values()) {
+                varUsages.put(usage.node, new VariableUsage(
+                    usage.node, usage.fullPath, renaming.apply(usage.value)
+                ));
+            }
+            Map<AstNode, ProcedureUsage> procUsages = new IdentityHashMap<>();
+            for(ProcedureUsage usage: this.procUsages.values()) {
+                List<TypeVariable> usageArguments = new ArrayList<>(
+                    usage.arguments.size()
+                );
+                for(TypeVariable argument: usage.arguments) {
+                    usageArguments.add(renaming.apply(argument));
+                }
+                procUsages.put(usage.node, new ProcedureUsage(
+                    usage.node, usage.shortPath, usageArguments,
+                    renaming.apply(usage.returned)
+                ));
+            }
+            return new ProcOutput(
+                this.ctx, constraints,
+                arguments, renaming.apply(this.returned),
+                varUsages, procUsages,
+                renaming.toId, this.varCount
+            );
+        }
+
+    }
 
     public ProcOutput generateProc(
         Symbols.Symbol s, Symbols.Symbol.Procedure p
     ) throws ErrorException {
         this.reset(s);
+        int firstVarId = this.ctx.varVount();
         this.enterFrame(p.argumentNames(), s.source);
         if(p.body().isPresent()) {
             this.walkBlock(p.body().get());
@@ -91,14 +192,16 @@ public class ConstraintGenerator {
         return new ProcOutput(
             this.ctx, this.constraints,
             frame.arguments, frame.returned,
-            this.varUsages, this.procUsages
+            this.varUsages, this.procUsages,
+            firstVarId, this.ctx.varVount() - firstVarId
         );
     }
 
     public static record VarOutput(
         TypeContext ctx, List<TypeConstraint> constraints,
         TypeVariable value,
-        List<VariableUsage> varUsages, List<ProcedureUsage> procUsages
+        Map<AstNode, VariableUsage> varUsages,
+        Map<AstNode, ProcedureUsage> procUsages
     ) {}
 
     public VarOutput generateVar(
@@ -432,7 +535,8 @@ public class ConstraintGenerator {
                 if(isProcCall) {
                     Namespace shortPath = data.called()
                         .<AstNode.ModuleAccess>getValue().path();
-                    this.procUsages.add(
+                    this.procUsages.putIfAbsent(
+                        node,
                         new ProcedureUsage(node, shortPath, arguments, returned)
                     );
                 } else {
@@ -808,8 +912,8 @@ public class ConstraintGenerator {
                             ));
                         }
                         TypeVariable value = this.ctx.makeVar();
-                        this.varUsages.add(
-                            new VariableUsage(node, fullPath, value)
+                        this.varUsages.putIfAbsent(
+                            node, new VariableUsage(node, fullPath, value)
                         );
                         return Optional.of(value);
                     }
@@ -833,7 +937,7 @@ public class ConstraintGenerator {
                             arguments.add(this.ctx.makeVar());
                         }
                         TypeVariable returns = this.ctx.makeVar();
-                        this.procUsages.add(new ProcedureUsage(
+                        this.procUsages.putIfAbsent(node, new ProcedureUsage(
                             node, fullPath, arguments, returns
                         ));
                         TypeVariable result = this.ctx.makeVar();
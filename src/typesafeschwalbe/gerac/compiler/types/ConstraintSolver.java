@@ -4,6 +4,7 @@ package typesafeschwalbe.gerac.compiler.types;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -16,7 +17,9 @@ import typesafeschwalbe.gerac.compiler.ErrorException;
 import typesafeschwalbe.gerac.compiler.Ref;
 import typesafeschwalbe.gerac.compiler.Source;
 import typesafeschwalbe.gerac.compiler.Symbols;
+import typesafeschwalbe.gerac.compiler.Trace;
 import typesafeschwalbe.gerac.compiler.frontend.AstNode;
+import typesafeschwalbe.gerac.compiler.frontend.DeferredBody;
 import typesafeschwalbe.gerac.compiler.frontend.Namespace;
 
 public class ConstraintSolver {
@@ -78,29 +81,48 @@ public class ConstraintSolver {
         int variant,
         Optional<List<TypeVariable>> arguments,
         TypeVariable returned,
-        List<ConstraintGenerator.VariableUsage> varUsages,
-        List<ConstraintGenerator.ProcedureUsage> procUsages,
+        Map<AstNode, ConstraintGenerator.VariableUsage> varUsages,
+        Map<AstNode, ConstraintGenerator.ProcedureUsage> procUsages,
+        // the types in the tree belong to the first instance
+        ConstraintGenerator.Renaming renaming,
+        NodeAnnotations annotations,
         boolean keepResult
     ) {}
 
     private Symbols symbols;
     private TypeContext ctx;
     private ConstraintGenerator cGen;
+    // the constraints of the first instance of each procedure,
+    // which are renamed for all further instances
+    private Map<Symbols.Symbol, ConstraintGenerator.ProcOutput> templates;
     private List<Scope> scopeStack;
+    private final Trace trace;
 
-    public ConstraintSolver() {}
+    public ConstraintSolver() {
+        this(Trace.disabled());
+    }
+
+    public ConstraintSolver(Trace trace) {
+        this.trace = trace;
+    }
 
     private Scope scope() {
         return this.scopeStack.get(this.scopeStack.size() - 1);
     }
 
     public List<Error> checkSymbols(
-        Symbols symbols, TypeContext ctx, Namespace mainPath
+        Symbols symbols, TypeContext ctx, Namespace mainPath, boolean checkAll
     ) {
         this.symbols = symbols;
         this.ctx = ctx;
+        this.templates = new IdentityHashMap<>();
         Set<Error> errors = new HashSet<>();
-        for(Namespace path: symbols.allSymbolPaths()) {
+        // unless requested otherwise only the main procedure is checked,
+        // which solves everything reachable from it along the way
+        Set<Namespace> checkedPaths = checkAll
+            ? symbols.allSymbolPaths()
+            : Set.of(mainPath);
+        for(Namespace path: checkedPaths) {
             this.cGen = new ConstraintGenerator(symbols, ctx);
             this.scopeStack = new LinkedList<>();
             Symbols.Symbol symbol = symbols.get(path).get();
@@ -109,14 +131,15 @@ public class ConstraintSolver {
                     case PROCEDURE: {
                         Symbols.Symbol.Procedure data = symbol.getValue();
                         SolvedProcedure solved = this.solveProcedure(
-                            symbol, data, Optional.empty(), 
+                            path, symbol, data, Optional.empty(), 
                             path.equals(mainPath)
                         );
                         symbol.setValue(new Symbols.Symbol.Procedure(
                             data.argumentNames(), data.builtinContext(), 
                             Optional.of(solved.arguments()), 
                             Optional.of(solved.returned()), 
-                            data.body(), data.ir_context(), data.ir_body()
+                            data.body(), data.annotations(),
+                            data.ir_context(), data.ir_body()
                         ));
                     } break;
                     case VARIABLE: {
@@ -126,13 +149,16 @@ public class ConstraintSolver {
                         );
                         symbol.setValue(new Symbols.Symbol.Variable(
                             Optional.of(solved), 
-                            data.valueNode(), data.value()
+                            data.valueNode(), data.annotations(), data.value()
                         ));
                     } break;
                     default: {
                         throw new RuntimeException("unhandled symbol type!");
                     }
                 }
+            } catch(DeferredBody.SyntaxErrorException e) {
+                // the other errors may just be caused by the missing body
+                return List.of(e.error);
             } catch(ErrorException e) {
                 errors.add(e.error);
             }
@@ -147,6 +173,16 @@ public class ConstraintSolver {
             ConstraintSolver solver,
             List<TypeVariable> gArguments, List<Source> gArgSources,
             TypeVariable eReturned, Source callSource
+        ) throws ErrorException {
+            this.unifyArguments(solver, gArguments, gArgSources);
+            solver.unifyVars(
+                this.returned, eReturned, callSource
+            );
+        }
+
+        private void unifyArguments(
+            ConstraintSolver solver,
+            List<TypeVariable> gArguments, List<Source> gArgSources
         ) throws ErrorException {
             for(int argI = 0; argI < this.arguments.size(); argI += 1) {
                 solver.unifyVars(
@@ -154,13 +190,11 @@ public class ConstraintSolver {
                     gArgSources.get(argI)
                 );
             }
-            solver.unifyVars(
-                this.returned, eReturned, callSource
-            );
         }
     }
     
     private SolvedProcedure solveProcedure(
+        Namespace path,
         Symbols.Symbol symbol, Symbols.Symbol.Procedure data,
         Optional<Source> usageSource, boolean keepResult
     ) throws ErrorException {
@@ -170,6 +204,23 @@ public class ConstraintSolver {
                 scope.variant, scope.arguments().get(), scope.returned
             );
         }
+        Trace.Span span = this.trace.begin(Trace.SOLVING, path.toString())
+            .arg("keepResult", keepResult);
+        try {
+            // procedure bodies are parsed on first use
+            this.symbols.parseBody(path);
+            return this.solveProcedureUntraced(
+                symbol, data, usageSource, keepResult
+            );
+        } finally {
+            this.trace.end(span);
+        }
+    }
+
+    private SolvedProcedure solveProcedureUntraced(
+        Symbols.Symbol symbol, Symbols.Symbol.Procedure data,
+        Optional<Source> usageSource, boolean keepResult
+    ) throws ErrorException {
         int variant = symbol.variantCount();
         Scope scope;
         List<TypeConstraint> constraints;
@@ -179,35 +230,45 @@ public class ConstraintSolver {
             scope = new Scope(
                 symbol, variant,
                 Optional.of(builtin.arguments()), builtin.returned(),
-                List.of(), List.of(),
+                Map.of(), Map.of(), ConstraintGenerator.Renaming.NONE,
+                new NodeAnnotations(ConstraintGenerator.Renaming.NONE),
                 keepResult
             );
             constraints = builtin.constraints();
         } else {
-            ConstraintGenerator.ProcOutput cOutput = this.cGen
-                .generateProc(symbol, data);
+            ConstraintGenerator.ProcOutput template = this.templates
+                .get(symbol);
+            ConstraintGenerator.ProcOutput cOutput;
+            ConstraintGenerator.Renaming renaming;
+            if(template == null) {
+                cOutput = this.cGen.generateProc(symbol, data);
+                renaming = ConstraintGenerator.Renaming.NONE;
+                this.templates.put(symbol, cOutput);
+            } else {
+                renaming = template.makeRenaming();
+                cOutput = template.renamed(renaming);
+            }
             scope = new Scope(
                 symbol, variant,
                 Optional.of(cOutput.arguments()), cOutput.returned(),
-                cOutput.varUsages(), cOutput.procUsages(),
-                keepResult
+                cOutput.varUsages(), cOutput.procUsages(), renaming,
+                new NodeAnnotations(renaming), keepResult
             );
             constraints = cOutput.constraints();
         }
         this.scopeStack.add(scope);
         this.solveConstraints(constraints);
-        Optional<List<AstNode>> processedBody = Optional.empty();
+        Optional<NodeAnnotations> annotations = Optional.empty();
         if(data.body().isPresent()) {
-            processedBody = Optional.of(
-                this.processNodes(data.body().get())
-            );
+            this.processNodes(data.body().get());
+            annotations = Optional.of(scope.annotations);
         }
         this.scopeStack.remove(this.scopeStack.size() - 1);
         if(keepResult) {
             symbol.addVariant(new Symbols.Symbol.Procedure(
                 data.argumentNames(), data.builtinContext(),
                 Optional.of(scope.arguments.get()), Optional.of(scope.returned), 
-                processedBody,
+                data.body(), annotations,
                 Optional.empty(), Optional.empty()
             ));
         }
@@ -235,19 +296,21 @@ public class ConstraintSolver {
         }
         ConstraintGenerator.VarOutput cOutput = this.cGen
             .generateVar(symbol, data);
-        this.scopeStack.add(new Scope(
+        Scope scope = new Scope(
             symbol, 0,
             Optional.empty(), cOutput.value(),
             cOutput.varUsages(), cOutput.procUsages(),
+            ConstraintGenerator.Renaming.NONE,
+            new NodeAnnotations(ConstraintGenerator.Renaming.NONE),
             keepResult
-        ));
+        );
+        this.scopeStack.add(scope);
         this.solveConstraints(cOutput.constraints());
-        Optional<AstNode> processedNode = Optional.empty();
+        Optional<NodeAnnotations> annotations = Optional.empty();
         TypeVariable valueType;
         if(data.valueNode().isPresent()) {
-            processedNode = Optional.of(
-                this.processNode(data.valueNode().get())
-            );
+            this.processNode(data.valueNode().get());
+            annotations = Optional.of(scope.annotations);
             valueType = cOutput.value();
         } else {
             valueType = data.valueType().get();
@@ -256,7 +319,7 @@ public class ConstraintSolver {
         if(keepResult) {
             symbol.addVariant(new Symbols.Symbol.Variable(
                 Optional.of(valueType),
-                processedNode,
+                data.valueNode(), annotations,
                 Optional.empty()
             ));
         }
@@ -949,14 +1012,12 @@ public class ConstraintSolver {
         );
     }
 
-    private List<AstNode> processNodes(
+    private void processNodes(
         List<AstNode> nodes
     ) throws ErrorException {
-        List<AstNode> r = new ArrayList<>(nodes.size());
         for(AstNode node: nodes) {
-            r.add(this.processNode(node));
+            this.processNode(node);
         }
-        return r;
     } 
 
     private static record ProcCall(Namespace path, int variant) {}
@@ -964,11 +1025,16 @@ public class ConstraintSolver {
     private ProcCall resolveProcCall(
         ConstraintGenerator.ProcedureUsage p, List<Source> argSources
     ) throws ErrorException {
-        List<Namespace> fullPaths = this.symbols.allowedPathExpansions(
+        List<Namespace> expansions = this.symbols.allowedPathExpansions(
             p.shortPath(), this.scope().symbol, p.node().source
         );
-        if(fullPaths.size() == 0) {
-            fullPaths.add(p.shortPath());
+        List<Namespace> fullPaths = expansions.size() > 0
+            ? expansions
+            : List.of(p.shortPath());
+        // the bodies of all candidates are parsed up front, so that syntax
+        // errors in them don't depend on which candidate ends up fitting
+        for(Namespace fullPath: fullPaths) {
+            this.symbols.parseBody(fullPath);
         }
         List<Error> errors = new ArrayList<>();
         for(int pathI = fullPaths.size() - 1; pathI >= 0; pathI -= 1) {
@@ -1003,31 +1069,42 @@ public class ConstraintSolver {
                 continue;
             }
             SolvedProcedure solved;
-            List<Scope> prevScopeStack = new LinkedList<>(this.scopeStack);
+            int scopeDepth = this.scopeStack.size();
+            Trace.Span attempt = this.trace
+                .begin(Trace.OVERLOAD_RESOLUTION, fullPath.toString())
+                .arg("call", p.shortPath());
             try {
                 solved = this.solveProcedure(
-                    symbol, symbolData,
+                    fullPath, symbol, symbolData,
                     Optional.of(p.node().source),
                     this.scope().keepResult
                 );
-                List<TypeVariable> attemptArgs = p.arguments()
-                    .stream().map(this.ctx::copyVar).toList();
-                TypeVariable attemptReturned = this.ctx.makeVar();
-                solved.unify(
-                    this, 
-                    attemptArgs, argSources, 
-                    attemptReturned, p.node().source
-                );
+            } catch(DeferredBody.SyntaxErrorException e) {
+                // not a sign of the candidate not fitting
+                this.trace.end(attempt.arg("succeeded", false));
+                throw e;
             } catch(ErrorException e) {
-                this.scopeStack = prevScopeStack;
+                while(this.scopeStack.size() > scopeDepth) {
+                    this.scopeStack.remove(this.scopeStack.size() - 1);
+                }
                 errors.add(e.error);
+                this.trace.end(attempt.arg("succeeded", false));
                 continue;
             }
-            solved.unify(
-                this, p.arguments(), 
-                argSources, p.returned(), 
-                p.node().source
-            );
+            // the arguments are unified in place,
+            // which is undone if the candidate doesn't fit
+            TypeContext.Mark mark = this.ctx.mark();
+            try {
+                solved.unifyArguments(this, p.arguments(), argSources);
+            } catch(ErrorException e) {
+                this.ctx.rollback(mark);
+                errors.add(e.error);
+                this.trace.end(attempt.arg("succeeded", false));
+                continue;
+            }
+            this.ctx.commit(mark);
+            this.trace.end(attempt.arg("succeeded", true));
+            this.unifyVars(solved.returned, p.returned(), p.node().source);
             return new ProcCall(fullPath, solved.variant);
         }
         if(errors.size() == 0) {
@@ -1068,169 +1145,98 @@ public class ConstraintSolver {
         ));
     }
 
-    private AstNode processNode(AstNode node) throws ErrorException {
+    private Optional<TypeVariable> renamed(Optional<TypeVariable> type) {
+        return this.scope().renaming.apply(type);
+    }
+
+    // Solves what the node uses and records what it resolves to in the
+    // annotations of the current variant. The node itself stays unchanged,
+    // since it is shared by all variants.
+    private void processNode(AstNode node) throws ErrorException {
         switch(node.type) {
             case CLOSURE: {
                 AstNode.Closure data = node.getValue();
-                return new AstNode(
-                    node.type,
-                    new AstNode.Closure(
-                        data.argumentNames(),
-                        new Ref<>(data.argumentTypes().get()),
-                        new Ref<>(data.returnType().get()),
-                        new Ref<>(data.captures().get()),
-                        this.processNodes(data.body())
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNodes(data.body());
+            } break;
             case VARIABLE: {
                 AstNode.Variable data = node.getValue();
-                return new AstNode(
-                    node.type,
-                    new AstNode.Variable(
-                        data.docComment(), data.isPublic(), data.isMutable(), 
-                        data.name(),
-                        new Ref<>(data.valueType().get()),
-                        data.value().isPresent()
-                            ? Optional.of(this.processNode(data.value().get()))
-                            : Optional.empty()
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                if(data.value().isPresent()) {
+                    this.processNode(data.value().get());
+                }
+            } break;
             case CASE_BRANCHING: {
                 AstNode.CaseBranching data = node.getValue();
-                List<List<AstNode>> branchBodies = new ArrayList<>();
                 for(List<AstNode> branchBody: data.branchBodies()) {
-                    branchBodies.add(this.processNodes(branchBody));
+                    this.processNodes(branchBody);
                 }
-                return new AstNode(
-                    node.type,
-                    new AstNode.CaseBranching(
-                        this.processNode(data.value()),
-                        this.processNodes(data.branchValues()),
-                        branchBodies, 
-                        this.processNodes(data.elseBody())
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.value());
+                this.processNodes(data.branchValues());
+                this.processNodes(data.elseBody());
+            } break;
             case CASE_CONDITIONAL: {
                 AstNode.CaseConditional data = node.getValue();
-                return new AstNode(
-                    node.type,
-                    new AstNode.CaseConditional(
-                        this.processNode(data.condition()),
-                        this.processNodes(data.ifBody()),
-                        this.processNodes(data.elseBody())
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.condition());
+                this.processNodes(data.ifBody());
+                this.processNodes(data.elseBody());
+            } break;
             case CASE_VARIANT: {
                 AstNode.CaseVariant data = node.getValue();
-                List<List<AstNode>> branchBodies = new ArrayList<>();
                 for(List<AstNode> branchBody: data.branchBodies()) {
-                    branchBodies.add(this.processNodes(branchBody));
+                    this.processNodes(branchBody);
                 }
-                return new AstNode(
-                    node.type,
-                    new AstNode.CaseVariant(
-                        this.processNode(data.value()),
-                        data.branchVariants(), data.branchVariableNames(),
-                        branchBodies,
-                        data.elseBody().isPresent()
-                            ? Optional.of(
-                                this.processNodes(data.elseBody().get())
-                            )
-                            : Optional.empty()
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.value());
+                if(data.elseBody().isPresent()) {
+                    this.processNodes(data.elseBody().get());
+                }
+            } break;
             case CALL: {
                 AstNode.Call data = node.getValue();
-                List<AstNode> arguments = this.processNodes(data.arguments());
-                for(
-                    ConstraintGenerator.ProcedureUsage procUsage
-                        : this.scope().procUsages
-                ) {
-                    if(procUsage.node() != node) { continue; }
+                this.processNodes(data.arguments());
+                ConstraintGenerator.ProcedureUsage procUsage = this.scope()
+                    .procUsages.get(node);
+                if(procUsage != null) {
                     ProcCall call = this.resolveProcCall(
                         procUsage, 
                         data.arguments().stream().map(a -> a.source).toList()
                     );
-                    return new AstNode(
+                    this.scope().annotations.resolve(node, new AstNode(
                         AstNode.Type.PROCEDURE_CALL,
                         new AstNode.ProcedureCall(
                             call.path, call.variant,
-                            arguments
+                            data.arguments()
                         ),
-                        node.source, node.resultType
-                    );
+                        node.source, this.renamed(node.resultType)
+                    ));
+                    break;
                 }
-                return new AstNode(
-                    node.type,
-                    new AstNode.Call(
-                        this.processNode(data.called()),
-                        arguments
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.called());
+            } break;
             case METHOD_CALL: {
                 AstNode.MethodCall data = node.getValue();
-                return new AstNode(
-                    node.type,
-                    new AstNode.MethodCall(
-                        this.processNode(data.called()), data.memberName(), 
-                        this.processNodes(data.arguments())
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.called());
+                this.processNodes(data.arguments());
+            } break;
             case OBJECT_LITERAL: {
                 AstNode.ObjectLiteral data = node.getValue();
-                Map<String, AstNode> values = new HashMap<>();
                 for(String member: data.values().keySet()) {
-                    values.put(
-                        member, this.processNode(data.values().get(member))
-                    );
+                    this.processNode(data.values().get(member));
                 }
-                return new AstNode(
-                    node.type, new AstNode.ObjectLiteral(values),
-                    node.source, node.resultType
-                );
-            }
+            } break;
             case ARRAY_LITERAL: {
                 AstNode.ArrayLiteral data = node.getValue();
-                return new AstNode(
-                    node.type, 
-                    new AstNode.ArrayLiteral(this.processNodes(data.values())), 
-                    node.source, node.resultType
-                );
-            }
+                this.processNodes(data.values());
+            } break;
             case OBJECT_ACCESS: {
                 AstNode.ObjectAccess data = node.getValue();
-                return new AstNode(
-                    node.type,
-                    new AstNode.ObjectAccess(
-                        this.processNode(data.accessed()),
-                        data.memberName()
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.accessed());
+            } break;
             case BOOLEAN_LITERAL:
             case INTEGER_LITERAL:
             case FLOAT_LITERAL:
             case STRING_LITERAL:
             case UNIT_LITERAL: {
-                return new AstNode(
-                    node.type, node.getValue(), node.source, node.resultType
-                );
-            }
+                // nothing to resolve
+            } break;
             case ASSIGNMENT:
             case REPEATING_ARRAY_LITERAL:
             case ARRAY_ACCESS:
@@ -1248,42 +1254,28 @@ public class ConstraintSolver {
             case OR:
             case AND: {
                 AstNode.BiOp data = node.getValue();
-                return new AstNode(
-                    node.type,
-                    new AstNode.BiOp(
-                        this.processNode(data.left()),
-                        this.processNode(data.right())
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.left());
+                this.processNode(data.right());
+            } break;
             case RETURN: 
             case NEGATE:
             case NOT:
             case STATIC: {
                 AstNode.MonoOp data = node.getValue();
-                return new AstNode(
-                    node.type,
-                    new AstNode.MonoOp(
-                        this.processNode(data.value())
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.value());
+            } break;
             case MODULE_ACCESS: {
                 AstNode.ModuleAccess data = node.getValue();
-                for(
-                    ConstraintGenerator.ProcedureUsage procUsage
-                        : this.scope().procUsages
-                ) {
-                    if(procUsage.node() != node) { continue; }
+                ConstraintGenerator.ProcedureUsage procUsage = this.scope()
+                    .procUsages.get(node);
+                if(procUsage != null) {
                     Symbols.Symbol symbol = this.symbols
                         .get(procUsage.shortPath()).get();
                     Symbols.Symbol.Procedure symbolData = symbol.getValue();
                     List<Source> argSources = symbolData.argumentNames()
                         .stream().map(a -> node.source).toList();
                     SolvedProcedure solved = this.solveProcedure(
-                        symbol, symbolData, 
+                        procUsage.shortPath(), symbol, symbolData, 
                         Optional.of(node.source),
                         this.scope().keepResult
                     );
@@ -1314,7 +1306,7 @@ public class ConstraintSolver {
                         node.source,
                         solved.returned
                     );
-                    return new AstNode(
+                    this.scope().annotations.resolve(node, new AstNode(
                         AstNode.Type.CLOSURE,
                         new AstNode.Closure(
                             symbolData.argumentNames(),
@@ -1331,14 +1323,13 @@ public class ConstraintSolver {
                                 ))
                             ))
                         ),
-                        node.source, node.resultType
-                    );
+                        node.source, this.renamed(node.resultType)
+                    ));
+                    break;
                 }
-                for(
-                    ConstraintGenerator.VariableUsage varUsage
-                        : this.scope().varUsages()
-                ) {
-                    if(varUsage.node() != node) { continue; }
+                ConstraintGenerator.VariableUsage varUsage = this.scope()
+                    .varUsages.get(node);
+                if(varUsage != null) {
                     Symbols.Symbol symbol = this.symbols
                         .get(varUsage.fullPath()).get();
                     Symbols.Symbol.Variable symbolData = symbol.getValue();
@@ -1348,44 +1339,31 @@ public class ConstraintSolver {
                     this.unifyVars(
                         varUsage.value(), valueType, node.source
                     );
-                    return new AstNode(
+                    this.scope().annotations.resolve(node, new AstNode(
                         AstNode.Type.MODULE_ACCESS,
                         new AstNode.ModuleAccess(
                             varUsage.fullPath(), Optional.of(0)
                         ),
-                        node.source, node.resultType
-                    );
+                        node.source, this.renamed(node.resultType)
+                    ));
+                    break;
                 }
                 String varName = data.path().elements()
                     .get(data.path().elements().size() - 1);
-                return new AstNode(
+                this.scope().annotations.resolve(node, new AstNode(
                     AstNode.Type.VARIABLE_ACCESS,
                     new AstNode.VariableAccess(varName),
-                    node.source, node.resultType
-                );
-            }
+                    node.source, this.renamed(node.resultType)
+                ));
+            } break;
             case VARIANT_LITERAL: {
                 AstNode.VariantLiteral data = node.getValue();
-                return new AstNode(
-                    node.type,
-                    new AstNode.VariantLiteral(
-                        data.variantName(),
-                        this.processNode(data.value())
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.value());
+            } break;
             case VARIANT_UNWRAP: {
                 AstNode.VariantUnwrap data = node.getValue();
-                return new AstNode(
-                    node.type,
-                    new AstNode.VariantUnwrap(
-                        this.processNode(data.unwrapped()),
-                        data.variantName()
-                    ),
-                    node.source, node.resultType
-                );
-            }
+                this.processNode(data.unwrapped());
+            } break;
             case PROCEDURE:
             case PROCEDURE_CALL:
             case VARIABLE_ACCESS:
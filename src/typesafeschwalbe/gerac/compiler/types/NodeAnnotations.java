@@ -0,0 +1,63 @@
+
+package typesafeschwalbe.gerac.compiler.types;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import typesafeschwalbe.gerac.compiler.frontend.AstNode;
+
+// The nodes of a procedure body (or of the value of a global variable) are
+// shared by all of its variants, and only hold the types of the first one.
+// What is different for each variant is looked up here instead - the types
+// of the nodes and the nodes that have been resolved to something else
+// (for example calls, which may call a different variant each time).
+public class NodeAnnotations {
+
+    private final ConstraintGenerator.Renaming renaming;
+    private final Map<AstNode, AstNode> resolved;
+
+    NodeAnnotations(ConstraintGenerator.Renaming renaming) {
+        this.renaming = renaming;
+        this.resolved = new IdentityHashMap<>();
+    }
+
+    void resolve(AstNode node, AstNode resolved) {
+        this.resolved.put(node, resolved);
+    }
+
+    public AstNode resolved(AstNode node) {
+        AstNode resolved = this.resolved.get(node);
+        return resolved != null? resolved : node;
+    }
+
+    public TypeVariable type(AstNode node) {
+        return this.renaming.apply(node.resultType.get());
+    }
+
+    public TypeVariable valueType(AstNode.Variable data) {
+        return this.renaming.apply(data.valueType().get().get());
+    }
+
+    public List<TypeVariable> argumentTypes(AstNode.Closure data) {
+        List<TypeVariable> types = data.argumentTypes().get().get();
+        if(this.renaming.isNone()) { return types; }
+        return types.stream().map(this.renaming::apply).toList();
+    }
+
+    public TypeVariable returnType(AstNode.Closure data) {
+        return this.renaming.apply(data.returnType().get().get());
+    }
+
+    public Map<String, TypeVariable> captures(AstNode.Closure data) {
+        Map<String, TypeVariable> types = data.captures().get().get();
+        if(this.renaming.isNone()) { return types; }
+        Map<String, TypeVariable> renamed = new HashMap<>();
+        for(String name: types.keySet()) {
+            renamed.put(name, this.renaming.apply(types.get(name)));
+        }
+        return renamed;
+    }
+
+}
@@ -1,9 +1,11 @@
 
 package typesafeschwalbe.gerac.compiler.types;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import typesafeschwalbe.gerac.compiler.Source;
 
@@ -82,6 +84,61 @@ public class TypeConstraint {
         return (T) this.value;
     }
 
+    // Returns the same constraint, but for the renamed type variables.
+    public TypeConstraint renamed(UnaryOperator<TypeVariable> rename) {
+        ConstraintValue value;
+        switch(this.type) {
+            case IS_NUMERIC:
+            case IS_INDEXED:
+            case IS_REFERENCED:
+            case IS_TYPE:
+            case LIMIT_MEMBERS:
+            case LIMIT_VARIANTS: {
+                value = this.value;
+            } break;
+            case HAS_ELEMENT: {
+                HasElement data = this.getValue();
+                value = new HasElement(rename.apply(data.type()));
+            } break;
+            case HAS_MEMBER: {
+                HasMember data = this.getValue();
+                value = new HasMember(data.name(), rename.apply(data.type()));
+            } break;
+            case HAS_SIGNATURE: {
+                HasSignature data = this.getValue();
+                List<TypeVariable> arguments = new ArrayList<>(
+                    data.arguments().size()
+                );
+                for(TypeVariable argument: data.arguments()) {
+                    arguments.add(rename.apply(argument));
+                }
+                value = new HasSignature(
+                    arguments, rename.apply(data.returned())
+                );
+            } break;
+            case HAS_VARIANT: {
+                HasVariant data = this.getValue();
+                value = new HasVariant(data.name(), rename.apply(data.type()));
+            } break;
+            case VARIANTS_OF_EXCEPT: {
+                VariantsOfExcept data = this.getValue();
+                value = new VariantsOfExcept(
+                    rename.apply(data.of()), data.except()
+                );
+            } break;
+            case UNIFY: {
+                Unify data = this.getValue();
+                value = new Unify(rename.apply(data.with()));
+            } break;
+            default: {
+                throw new RuntimeException("unhandled constraint type!");
+            }
+        }
+        return new TypeConstraint(
+            rename.apply(this.target), this.source, this.type, value
+        );
+    }
+
     @Override
     public String toString() {
         return this.target + " -> <" + this.type + ">" + this.value;
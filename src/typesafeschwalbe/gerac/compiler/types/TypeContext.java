@@ -1,9 +1,7 @@
 
 package typesafeschwalbe.gerac.compiler.types;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -53,24 +51,21 @@ public class TypeContext {
         this.substitutes.set(var.id, value);
     }
 
-    public TypeVariable copyVar(TypeVariable var) {
-        return this.copyVar(var, new HashMap<>());
+    public static record Mark(UnionFind.Mark substitutes, int nextVarId) {}
+
+    // Changes made to the types after calling this can be undone by
+    // calling 'rollback' with the returned mark, or kept using 'commit'.
+    public Mark mark() {
+        return new Mark(this.substitutes.mark(), this.nextVarId);
     }
 
-    private TypeVariable copyVar(
-        TypeVariable var, Map<Integer, TypeVariable> copied
-    ) {
-        int root = this.substitutes.find(var.id);
-        TypeVariable existing = copied.get(root);
-        if(existing != null) {
-            return existing;
-        }
-        TypeVariable copy = this.makeVar();
-        copied.put(root, copy);
-        DataType<TypeVariable> value = this.substitutes.get(root)
-            .map(v -> this.copyVar(v, copied));
-        this.substitutes.set(copy.id, value);
-        return copy;
+    public void commit(Mark mark) {
+        this.substitutes.commit(mark.substitutes);
+    }
+
+    public void rollback(Mark mark) {
+        this.substitutes.rollback(mark.substitutes);
+        this.nextVarId = mark.nextVarId;
     }
 
     private static record EqualityEncounter(int rootA, int rootB) {}